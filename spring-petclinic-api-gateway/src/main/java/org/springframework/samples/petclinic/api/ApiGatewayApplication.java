@@ -17,9 +17,13 @@ package org.springframework.samples.petclinic.api;
 
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
@@ -29,6 +33,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.api.application.ServiceClientsProperties;
+import org.springframework.samples.petclinic.api.application.SingleFlight;
+import org.springframework.samples.petclinic.api.application.SingleFlightProperties;
+import org.springframework.samples.petclinic.api.dto.OwnerDetails;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.RequestPredicates;
@@ -44,8 +52,14 @@ import java.time.Duration;
  */
 @EnableDiscoveryClient
 @SpringBootApplication
+@EnableConfigurationProperties({ServiceClientsProperties.class, SingleFlightProperties.class})
 public class ApiGatewayApplication {
 
+    /**
+     * How long a chat answer may stream through the genai route
+     */
+    static final Duration GENAI_TIMEOUT = Duration.ofMinutes(2);
+
     public static void main(String[] args) {
         SpringApplication.run(ApiGatewayApplication.class, args);
     }
@@ -62,6 +76,17 @@ public class ApiGatewayApplication {
         return WebClient.builder();
     }
 
+    /**
+     * Shares one aggregation between the identical owner details requests in flight at the same time.
+     * An owner served without its visits is not kept, so that the next request tries them again.
+     */
+    @Bean
+    SingleFlight<Integer, OwnerDetails> ownerDetailsSingleFlight(SingleFlightProperties properties,
+                                                                ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SingleFlight<>("owner-details", properties.maxInFlight(), properties.resultTtl(),
+            owner -> !owner.visitsDegraded(), meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
     @Value("classpath:/static/index.html")
     private Resource indexHtml;
 
@@ -87,4 +112,37 @@ public class ApiGatewayApplication {
             .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(10)).build())
             .build());
     }
+
+    /**
+     * The owner details circuit breakers give up on the visits once the visits-service budget is spent,
+     * that of a single owner or that of the fan-out of several owners
+     */
+    @Bean
+    public Customizer<ReactiveResilience4JCircuitBreakerFactory> ownerDetailsCustomizer(ServiceClientsProperties properties) {
+        Duration timeout = properties.budget("visits-service").timeout();
+        Duration batchTimeout = properties.visitsFanOut().timeout();
+        return factory -> {
+            factory.configure(builder -> builder
+                .circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
+                .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(timeout).build()),
+                "getOwnerDetails");
+            factory.configure(builder -> builder
+                .circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
+                .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(batchTimeout).build()),
+                "getOwnersDetails");
+        };
+    }
+
+    /**
+     * The time limit of a circuit breaker covers the whole response, so the 10 seconds of the default one
+     * would cut a chat answer streamed as server-sent events. Both circuit breakers of the genai route,
+     * its own and the default one named after the route, leave the stream {@link #GENAI_TIMEOUT} instead.
+     */
+    @Bean
+    public Customizer<ReactiveResilience4JCircuitBreakerFactory> genaiCustomizer() {
+        return factory -> factory.configure(builder -> builder
+            .circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
+            .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(GENAI_TIMEOUT).build()),
+            "genai-service", "genaiCircuitBreaker");
+    }
 }
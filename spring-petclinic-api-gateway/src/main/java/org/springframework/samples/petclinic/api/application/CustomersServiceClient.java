@@ -18,24 +18,46 @@ package org.springframework.samples.petclinic.api.application;
 import org.springframework.samples.petclinic.api.dto.OwnerDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+
 /**
  * @author Maciej Szarlinski
  */
 @Component
 public class CustomersServiceClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
 
-    public CustomersServiceClient(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    private final Duration timeout;
+
+    public CustomersServiceClient(ServiceWebClientFactory webClientFactory, ServiceClientsProperties properties) {
+        this.webClient = webClientFactory.create("customers-service");
+        this.timeout = properties.budget("customers-service").timeout();
     }
 
     public Mono<OwnerDetails> getOwner(final int ownerId) {
-        return webClientBuilder.build().get()
+        return webClient.get()
             .uri("http://customers-service/owners/{ownerId}", ownerId)
             .retrieve()
-            .bodyToMono(OwnerDetails.class);
+            .bodyToMono(OwnerDetails.class)
+            .timeout(timeout);
+    }
+
+    public Flux<OwnerDetails> getOwners(final List<Integer> ownerIds) {
+        return webClient.get()
+            .uri("http://customers-service/owners?ownerId={ownerId}", joinIds(ownerIds))
+            .retrieve()
+            .bodyToFlux(OwnerDetails.class)
+            .timeout(timeout);
+    }
+
+    private String joinIds(List<Integer> ownerIds) {
+        return ownerIds.stream().map(Object::toString).collect(joining(","));
     }
 }
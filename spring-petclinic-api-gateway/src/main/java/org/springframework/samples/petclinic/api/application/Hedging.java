@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Times the calls to a downstream service and, when its {@link ServiceClientsProperties.Budget} asks
+ * for it, hedges the slow ones: a call still pending after the configured percentile of the recent
+ * latencies is raced against a second call, and the first answer wins. The load balancer sends the
+ * second call to the next instance, so one slow node no longer sets the tail latency. A call that
+ * failed, or completed without a value, before that delay is not hedged: its outcome is final.
+ * <p>
+ * Only idempotent reads may be hedged. Latencies are published as {@code petclinic.gateway.downstream}
+ * and hedges as {@code petclinic.gateway.hedged}, both tagged with the service id.
+ */
+public class Hedging {
+
+    /**
+     * Below this many recorded calls the percentile is not trusted and no call is hedged.
+     */
+    private static final long MIN_SAMPLES = 20;
+
+    private final ServiceClientsProperties.Budget budget;
+
+    private final Timer latency;
+
+    private final Counter hedged;
+
+    public Hedging(String serviceId, ServiceClientsProperties.Budget budget, MeterRegistry meterRegistry) {
+        this.budget = budget;
+        Timer.Builder timer = Timer.builder("petclinic.gateway.downstream")
+            .description("Latency of the calls made by the gateway to a downstream service")
+            .tag("service", serviceId);
+        if (budget.isHedged()) {
+            timer.publishPercentiles(budget.hedgePercentile());
+        }
+        this.latency = timer.register(meterRegistry);
+        this.hedged = Counter.builder("petclinic.gateway.hedged")
+            .description("Calls raced against a second call after exceeding the hedging percentile")
+            .tag("service", serviceId)
+            .register(meterRegistry);
+    }
+
+    public <T> Mono<T> call(Mono<T> call) {
+        Mono<T> timed = Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+        Duration delay = hedgeDelay();
+        if (delay == null) {
+            return timed;
+        }
+        return Mono.defer(() -> {
+            Sinks.One<Boolean> firstSettled = Sinks.one();
+            AtomicReference<Throwable> firstError = new AtomicReference<>();
+            Mono<T> first = timed
+                .doOnError(firstError::set)
+                .doFinally(signal -> firstSettled.tryEmitValue(true));
+            Mono<T> hedge = Mono.delay(delay)
+                .takeUntilOther(firstSettled.asMono())
+                .flatMap(tick -> {
+                    hedged.increment();
+                    return timed;
+                });
+            return Mono.firstWithValue(first, hedge)
+                // No call gave a value: report why the first one did not, rather than the race
+                .onErrorMap(NoSuchElementException.class, e -> firstError.get() != null ? firstError.get() : e);
+        });
+    }
+
+    Duration hedgeDelay() {
+        if (!budget.isHedged() || latency.count() < MIN_SAMPLES) {
+            return null;
+        }
+        for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+            if (value.percentile() == budget.hedgePercentile()) {
+                Duration delay = Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+                return delay.compareTo(budget.minHedgeDelay()) < 0 ? budget.minHedgeDelay() : delay;
+            }
+        }
+        return null;
+    }
+}
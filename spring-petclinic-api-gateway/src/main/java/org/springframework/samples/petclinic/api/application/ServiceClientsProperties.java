@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.application;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Connection pool settings and latency budgets of the
+ * {@link org.springframework.web.reactive.function.client.WebClient}s used to call the downstream
+ * services, keyed by service id, and how visit lookups are split.
+ */
+@ConfigurationProperties(prefix = "clients")
+public record ServiceClientsProperties(
+    Map<String, Pool> pools,
+    @DefaultValue FanOut visitsFanOut,
+    Map<String, Budget> budgets
+) {
+
+    public Pool pool(String serviceId) {
+        if (pools == null || !pools.containsKey(serviceId)) {
+            return Pool.DEFAULTS;
+        }
+        return pools.get(serviceId);
+    }
+
+    public Budget budget(String serviceId) {
+        if (budgets == null || !budgets.containsKey(serviceId)) {
+            return Budget.DEFAULTS;
+        }
+        return budgets.get(serviceId);
+    }
+
+    public record Pool(
+        @DefaultValue("100") int maxConnections,
+        @DefaultValue("1000") int pendingAcquireMaxCount,
+        @DefaultValue("5s") Duration pendingAcquireTimeout,
+        @DefaultValue("30s") Duration maxIdleTime,
+        @DefaultValue("60s") Duration evictionInterval,
+        @DefaultValue("5s") Duration responseTimeout
+    ) {
+        static final Pool DEFAULTS = new Pool(100, 1000, Duration.ofSeconds(5), Duration.ofSeconds(30),
+            Duration.ofSeconds(60), Duration.ofSeconds(5));
+    }
+
+    /**
+     * Pet ids are sent to the visits-service in chunks of {@code chunkSize}, at most
+     * {@code concurrency} chunks being in flight at the same time. The visits of several owners
+     * at once may take up to {@code timeout}, all chunks included, rather than the budget of a
+     * single visits-service call.
+     */
+    public record FanOut(
+        @DefaultValue("50") int chunkSize,
+        @DefaultValue("4") int concurrency,
+        @DefaultValue("1s") Duration timeout
+    ) {
+        static final FanOut DEFAULTS = new FanOut(50, 4, Duration.ofSeconds(1));
+    }
+
+    /**
+     * Time a call to a service may take before the gateway gives up on it. With a positive
+     * {@code hedgePercentile}, a call still pending after that percentile of the recent latencies
+     * (but never before {@code minHedgeDelay}) is raced against a second, identical call.
+     */
+    public record Budget(
+        @DefaultValue("10s") Duration timeout,
+        @DefaultValue("0") double hedgePercentile,
+        @DefaultValue("20ms") Duration minHedgeDelay
+    ) {
+        static final Budget DEFAULTS = new Budget(Duration.ofSeconds(10), 0, Duration.ofMillis(20));
+
+        public boolean isHedged() {
+            return hedgePercentile > 0 && hedgePercentile < 1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.application;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single upstream call whose result they all share.
+ * <p>
+ * At most {@code maxInFlight} keys are tracked. With a positive {@code resultTtl}, a completed result
+ * is also handed to calls made within that delay; with zero, a key is forgotten as soon as its call
+ * completes. Errors, empty results and the results the {@code reusable} predicate rejects, such as a
+ * degraded answer, are never kept. The {@code petclinic.gateway.singleflight}
+ * counter tells executed calls from collapsed ones.
+ */
+public class SingleFlight<K, V> {
+
+    private final AsyncCache<K, V> flights;
+
+    private final boolean keepResults;
+
+    private final Predicate<? super V> reusable;
+
+    private final Counter executed;
+
+    private final Counter collapsed;
+
+    public SingleFlight(String name, int maxInFlight, Duration resultTtl, MeterRegistry meterRegistry) {
+        this(name, maxInFlight, resultTtl, value -> true, meterRegistry);
+    }
+
+    public SingleFlight(String name, int maxInFlight, Duration resultTtl, Predicate<? super V> reusable,
+                        MeterRegistry meterRegistry) {
+        this.reusable = reusable;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maxInFlight);
+        this.keepResults = resultTtl.isPositive();
+        if (keepResults) {
+            builder.expireAfterWrite(resultTtl);
+        }
+        this.flights = builder.buildAsync();
+        this.executed = counter(meterRegistry, name, "executed");
+        this.collapsed = counter(meterRegistry, name, "collapsed");
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        CompletableFuture<V> started = new CompletableFuture<>();
+        CompletableFuture<V> flight = flights.get(key, (k, executor) -> started);
+        if (flight == started) {
+            executed.increment();
+            subscribe(key, call, started);
+        } else {
+            collapsed.increment();
+        }
+        // A caller going away must not cancel the call the others are waiting for
+        return Mono.fromFuture(flight, true);
+    }
+
+    private void subscribe(K key, Supplier<Mono<V>> call, CompletableFuture<V> flight) {
+        flight.whenComplete((value, error) -> {
+            if (!keepResults || (value != null && !reusable.test(value))) {
+                flights.asMap().remove(key, flight);
+            }
+        });
+        Mono.defer(call).subscribe(
+            flight::complete,
+            flight::completeExceptionally,
+            () -> flight.complete(null));
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("petclinic.gateway.singleflight")
+            .description("Calls executed upstream or collapsed into an identical in-flight call")
+            .tag("name", name)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
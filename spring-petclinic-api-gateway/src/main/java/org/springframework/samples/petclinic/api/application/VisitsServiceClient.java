@@ -15,43 +15,81 @@
  */
 package org.springframework.samples.petclinic.api.application;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.samples.petclinic.api.dto.Visits;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.stream.Collectors.joining;
-
 /**
  * @author Maciej Szarlinski
  */
 @Component
 public class VisitsServiceClient {
 
+    /**
+     * The owner view only shows recent visits; full histories are paged from the visits-service directly.
+     */
+    static final int LATEST_VISITS_PER_PET = 20;
+
     // Could be changed for testing purpose
     private String hostname = "http://visits-service/";
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
+
+    private final ServiceClientsProperties.FanOut fanOut;
+
+    private final Hedging hedging;
 
-    public VisitsServiceClient(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    public VisitsServiceClient(ServiceWebClientFactory webClientFactory, ServiceClientsProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.webClient = webClientFactory.create("visits-service");
+        this.fanOut = properties.visitsFanOut();
+        this.hedging = new Hedging("visits-service", properties.budget("visits-service"), meterRegistry);
     }
 
+    /**
+     * Retrieves the most recent visits of the given pets. Large id lists are split into chunks that are
+     * queried concurrently, with bounded parallelism, and merged back in the order of the chunks.
+     */
     public Mono<Visits> getVisitsForPets(final List<Integer> petIds) {
-        return webClientBuilder.build()
-            .get()
-            .uri(hostname + "pets/visits?petId={petId}", joinIds(petIds))
+        if (petIds.size() <= fanOut.chunkSize()) {
+            return fetchVisits(petIds);
+        }
+        return Flux.fromIterable(chunk(petIds, fanOut.chunkSize()))
+            .flatMapSequential(this::fetchVisits, fanOut.concurrency())
+            .flatMapIterable(Visits::items)
+            .collectList()
+            .map(Visits::new);
+    }
+
+    private Mono<Visits> fetchVisits(List<Integer> petIds) {
+        // The ids travel in the body: no URL length limit, whatever the chunk size.
+        // Although a POST, the call is a read and may be hedged.
+        return hedging.call(webClient
+            .post()
+            .uri(hostname + "pets/visits")
+            .bodyValue(new VisitsQuery(petIds, LATEST_VISITS_PER_PET))
             .retrieve()
-            .bodyToMono(Visits.class);
+            .bodyToMono(Visits.class));
     }
 
-    private String joinIds(List<Integer> petIds) {
-        return petIds.stream().map(Object::toString).collect(joining(","));
+    static List<List<Integer>> chunk(List<Integer> ids, int size) {
+        List<List<Integer>> chunks = new ArrayList<>((ids.size() + size - 1) / size);
+        for (int from = 0; from < ids.size(); from += size) {
+            chunks.add(ids.subList(from, Math.min(from + size, ids.size())));
+        }
+        return chunks;
     }
 
     void setHostname(String hostname) {
         this.hostname = hostname;
     }
+
+    record VisitsQuery(List<Integer> petIds, int latest) {
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.boundary.web;
+
+/**
+ * Concurrency limit of a route adjusted from the latencies it observes, after the gradient
+ * algorithm: the limit shrinks as soon as the recent latency drifts above the long-term one
+ * (requests start queueing upstream) and grows slowly while it does not.
+ * <p>
+ * Growth only happens while the route actually uses at least half of its limit, so that an idle
+ * route does not drift to its maximum and then let a burst through all at once.
+ */
+class AdaptiveLimit {
+
+    /**
+     * Recent latency may exceed the long-term one by this factor before the limit shrinks.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * Weight of the new limit in the smoothed one.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private static final double SHORT_WINDOW = 10;
+
+    private static final double LONG_WINDOW = 600;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private double limit;
+
+    private double shortRtt;
+
+    private double longRtt;
+
+    AdaptiveLimit(int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    boolean isFixed() {
+        return minLimit >= maxLimit;
+    }
+
+    /**
+     * Records the latency of a completed request, {@code inFlight} requests (this one included)
+     * having been in flight when it started, and returns the new limit.
+     */
+    synchronized int onSample(long rttNanos, int inFlight) {
+        if (isFixed()) {
+            return maxLimit;
+        }
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return (int) limit;
+        }
+        shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+        longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+        // After a lasting latency drop, let the baseline catch up quickly rather than over 600 samples
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (inFlight < limit / 2) {
+            return (int) limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        return (int) limit;
+    }
+}
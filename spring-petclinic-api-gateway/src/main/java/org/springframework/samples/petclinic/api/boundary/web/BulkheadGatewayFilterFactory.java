@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests a route may have in flight, so that a slow upstream service only
+ * ever holds its own share of the gateway's connections:
+ * <pre>
+ * filters:
+ *   - Bulkhead=20,2   # max and min concurrent requests
+ * </pre>
+ * The cap is a Resilience4j semaphore bulkhead whose size follows an {@link AdaptiveLimit}
+ * between the min and the max: it starts at the max and shrinks as the upstream latency grows.
+ * Requests over the cap are not queued but rejected at once with the configured status
+ * (429 by default) and a {@code Retry-After} header.
+ * <p>
+ * A permit is held until the response body is written, streamed responses included, and that is
+ * the latency the limit follows: the filter runs before {@link NettyWriteResponseFilter}, whatever
+ * its position in the route, and after the {@link ResponseCacheGatewayFilterFactory response cache}
+ * so that cache hits take no permit.
+ * <p>
+ * The current limit and free permits are published as {@code resilience4j.bulkhead.*} metrics
+ * tagged {@code name=gateway-<route id>}, rejections as {@code petclinic.gateway.bulkhead.rejected}.
+ */
+@Component
+public class BulkheadGatewayFilterFactory
+    extends AbstractGatewayFilterFactory<BulkheadGatewayFilterFactory.Config> {
+
+    /**
+     * Order of the filter, between the response cache and the {@link NettyWriteResponseFilter}.
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+
+    private final MeterRegistry meterRegistry;
+
+    public BulkheadGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxConcurrentCalls", "minConcurrentCalls", "statusCode");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String name = config.getRouteId() == null ? "gateway" : "gateway-" + config.getRouteId();
+        int minConcurrentCalls = Math.min(config.getMinConcurrentCalls(), config.getMaxConcurrentCalls());
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(name, BulkheadConfig.custom()
+            .maxConcurrentCalls(config.getMaxConcurrentCalls())
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+        Counter rejected = Counter.builder("petclinic.gateway.bulkhead.rejected")
+            .description("Requests rejected because their route had reached its concurrency limit")
+            .tag("name", name)
+            .register(meterRegistry);
+        return new RouteBulkhead(bulkhead, new AdaptiveLimit(minConcurrentCalls, config.getMaxConcurrentCalls()),
+            rejected, config.getStatusCode());
+    }
+
+    private static final class RouteBulkhead implements GatewayFilter, Ordered {
+
+        private final Bulkhead bulkhead;
+
+        private final AdaptiveLimit limit;
+
+        private final Counter rejected;
+
+        private final HttpStatus rejectionStatus;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        RouteBulkhead(Bulkhead bulkhead, AdaptiveLimit limit, Counter rejected, HttpStatus rejectionStatus) {
+            this.bulkhead = bulkhead;
+            this.limit = limit;
+            this.rejected = rejected;
+            this.rejectionStatus = rejectionStatus;
+        }
+
+        @Override
+        public int getOrder() {
+            return ORDER;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            if (!bulkhead.tryAcquirePermission()) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(rejectionStatus);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return exchange.getResponse().setComplete();
+            }
+            int started = inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                .doFinally(signal -> {
+                    inFlight.decrementAndGet();
+                    bulkhead.onComplete();
+                    resize(limit.onSample(System.nanoTime() - start, started));
+                });
+        }
+
+        private void resize(int newLimit) {
+            if (newLimit != bulkhead.getBulkheadConfig().getMaxConcurrentCalls()) {
+                bulkhead.changeConfig(BulkheadConfig.from(bulkhead.getBulkheadConfig())
+                    .maxConcurrentCalls(newLimit)
+                    .build());
+            }
+        }
+    }
+
+    public static class Config implements HasRouteId {
+
+        private int maxConcurrentCalls = 100;
+
+        private int minConcurrentCalls = 1;
+
+        private HttpStatus statusCode = HttpStatus.TOO_MANY_REQUESTS;
+
+        private String routeId;
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public int getMinConcurrentCalls() {
+            return minConcurrentCalls;
+        }
+
+        public void setMinConcurrentCalls(int minConcurrentCalls) {
+            this.minConcurrentCalls = minConcurrentCalls;
+        }
+
+        public HttpStatus getStatusCode() {
+            return statusCode;
+        }
+
+        public void setStatusCode(HttpStatus statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caches the responses of a read-only route in the gateway:
+ * <pre>
+ * filters:
+ *   - ResponseCache=10m,200,5MB   # time to live, max entries, max size in bytes
+ * </pre>
+ * Only successful GET responses are stored, for the shorter of the route's time to live and the
+ * upstream {@code max-age}; {@code no-store}, {@code no-cache}, {@code private} and {@code Set-Cookie}
+ * responses are passed through. Requests sending {@code Cache-Control: no-cache} bypass the cache.
+ * A cached {@code ETag} matching {@code If-None-Match} is answered with 304.
+ * <p>
+ * Concurrent misses for the same key wait for the first request, so only one reaches the upstream
+ * service. Hits, misses and evictions are published as {@code cache.*} metrics tagged
+ * {@code cache=gateway-<route id>}, from which the hit ratio derives.
+ * <p>
+ * The filter runs before {@link NettyWriteResponseFilter}, whatever its position in the route:
+ * the upstream body is written to the response of the exchange that filter is given, which must
+ * be the capturing one.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+    extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    /**
+     * Headers the cached response may vary on: they are part of the key.
+     */
+    private static final Set<String> KEY_HEADERS = Set.of("accept", "accept-encoding");
+
+    /**
+     * Order of the filter, ahead of {@link BulkheadGatewayFilterFactory#ORDER} so that cache hits take no permit.
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private final MeterRegistry meterRegistry;
+
+    public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("timeToLive", "maxEntries", "maxSize");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        ResponseCache responseCache = new ResponseCache(config);
+        String cacheName = config.getRouteId() == null ? "gateway" : "gateway-" + config.getRouteId();
+        CaffeineCacheMetrics.monitor(meterRegistry, responseCache.entries.synchronous(), cacheName);
+        return responseCache;
+    }
+
+    private static final class ResponseCache implements GatewayFilter, Ordered {
+
+        private final AsyncCache<String, CachedResponse> entries;
+
+        private final Config config;
+
+        ResponseCache(Config config) {
+            this.config = config;
+            long maxBytes = config.getMaxSize().toBytes();
+            // Each entry weighs at least its share of the budget, which also bounds the number of entries
+            int minWeight = (int) Math.min(Integer.MAX_VALUE, maxBytes / Math.max(1, config.getMaxEntries()));
+            this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, CachedResponse>weigher((key, response) ->
+                    response.isCacheable() ? Math.max(response.body().length, minWeight) : 0)
+                .expireAfter(new TimeToLive())
+                .recordStats()
+                .buildAsync();
+        }
+
+        @Override
+        public int getOrder() {
+            return ORDER;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || bypassesCache(request.getHeaders())) {
+                return chain.filter(exchange);
+            }
+            CompletableFuture<CachedResponse> leader = new CompletableFuture<>();
+            CompletableFuture<CachedResponse> entry = entries.get(key(request), (key, executor) -> leader);
+            if (entry == leader) {
+                return chain.filter(exchange.mutate().response(new CapturingResponse(exchange.getResponse(), leader)).build())
+                    .doOnError(leader::completeExceptionally)
+                    .doFinally(signal -> leader.complete(CachedResponse.NOT_CACHEABLE));
+            }
+            // Do not let a disconnecting client cancel the response other requests are waiting for
+            return Mono.fromFuture(entry, true)
+                .onErrorResume(e -> Mono.just(CachedResponse.NOT_CACHEABLE))
+                .flatMap(cached -> cached.isCacheable() ? write(exchange, cached) : chain.filter(exchange));
+        }
+
+        private Mono<Void> write(ServerWebExchange exchange, CachedResponse cached) {
+            ServerHttpResponse response = exchange.getResponse();
+            String etag = cached.headers().getETag();
+            if (etag != null && exchange.getRequest().getHeaders().getIfNoneMatch().contains(etag)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(etag);
+                return response.setComplete();
+            }
+            response.setStatusCode(cached.status());
+            response.getHeaders().addAll(cached.headers());
+            response.getHeaders().set(HttpHeaders.AGE, Long.toString(cached.age().toSeconds()));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+        }
+
+        private String key(ServerHttpRequest request) {
+            StringBuilder key = new StringBuilder(request.getURI().getRawPath());
+            if (request.getURI().getRawQuery() != null) {
+                key.append('?').append(request.getURI().getRawQuery());
+            }
+            request.getHeaders().forEach((name, values) -> {
+                if (KEY_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    key.append('|').append(name.toLowerCase(Locale.ROOT)).append('=').append(values);
+                }
+            });
+            return key.toString();
+        }
+
+        /**
+         * Time to live of a response, or {@code null} when it must not be stored.
+         */
+        private Duration timeToLive(HttpStatusCode status, HttpHeaders headers) {
+            if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return null;
+            }
+            long contentLength = headers.getContentLength();
+            if (contentLength > config.getMaxSize().toBytes()) {
+                return null;
+            }
+            for (String vary : headers.getVary()) {
+                if (!KEY_HEADERS.contains(vary.toLowerCase(Locale.ROOT))) {
+                    return null;
+                }
+            }
+            Duration ttl = config.getTimeToLive();
+            for (String directive : directives(headers)) {
+                if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+                    return null;
+                }
+                if (directive.startsWith("max-age=") || directive.startsWith("s-maxage=")) {
+                    try {
+                        Duration maxAge = Duration.ofSeconds(Long.parseLong(directive.substring(directive.indexOf('=') + 1)));
+                        ttl = maxAge.compareTo(ttl) < 0 ? maxAge : ttl;
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+            return ttl.isZero() || ttl.isNegative() ? null : ttl;
+        }
+
+        private static boolean bypassesCache(HttpHeaders headers) {
+            return headers.containsKey(HttpHeaders.AUTHORIZATION)
+                || directives(headers).stream().anyMatch(d -> d.equals("no-cache") || d.equals("no-store"))
+                || "no-cache".equalsIgnoreCase(headers.getPragma());
+        }
+
+        private static HttpHeaders storedHeaders(HttpHeaders headers) {
+            HttpHeaders stored = new HttpHeaders();
+            stored.addAll(headers);
+            stored.remove(HttpHeaders.TRANSFER_ENCODING);
+            stored.remove(HttpHeaders.CONNECTION);
+            stored.remove(HttpHeaders.DATE);
+            return stored;
+        }
+
+        private static List<String> directives(HttpHeaders headers) {
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl == null) {
+                return List.of();
+            }
+            return Arrays.stream(cacheControl.split(","))
+                .map(directive -> directive.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        }
+
+        /**
+         * Buffers the body written by the upstream response so that it can complete the cache entry.
+         */
+        private final class CapturingResponse extends ServerHttpResponseDecorator {
+
+            private final CompletableFuture<CachedResponse> leader;
+
+            CapturingResponse(ServerHttpResponse delegate, CompletableFuture<CachedResponse> leader) {
+                super(delegate);
+                this.leader = leader;
+            }
+
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                HttpStatusCode status = getStatusCode();
+                Duration ttl = timeToLive(status, getHeaders());
+                if (ttl == null) {
+                    leader.complete(CachedResponse.NOT_CACHEABLE);
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(body).flatMap(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+                    leader.complete(new CachedResponse(status, storedHeaders(getHeaders()), bytes, System.nanoTime(), ttl));
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                // Streamed responses are never cached
+                leader.complete(CachedResponse.NOT_CACHEABLE);
+                return super.writeAndFlushWith(body);
+            }
+        }
+    }
+
+    private record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, long storedAt, Duration ttl) {
+
+        /**
+         * Answer of a request whose response could not be stored: requests waiting for it go upstream.
+         */
+        static final CachedResponse NOT_CACHEABLE = new CachedResponse(null, null, null, 0, Duration.ZERO);
+
+        boolean isCacheable() {
+            return body != null;
+        }
+
+        Duration age() {
+            return Duration.ofNanos(System.nanoTime() - storedAt);
+        }
+    }
+
+    private static final class TimeToLive implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+            return response.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return response.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    public static class Config implements HasRouteId {
+
+        private Duration timeToLive = Duration.ofMinutes(5);
+
+        private int maxEntries = 100;
+
+        private DataSize maxSize = DataSize.ofMegabytes(10);
+
+        private String routeId;
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.springframework.samples.petclinic.api.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
 
@@ -29,7 +30,8 @@ public record OwnerDetails(
     String address,
     String city,
     String telephone,
-    List<PetDetails> pets) {
+    List<PetDetails> pets,
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean visitsDegraded) {
 
     @JsonIgnore
     public List<Integer> getPetIds() {
@@ -38,6 +40,14 @@ public record OwnerDetails(
             .toList();
     }
 
+    /**
+     * Copy of this owner flagged as having incomplete visits, the visits-service having
+     * failed or exceeded its latency budget.
+     */
+    public OwnerDetails withVisitsDegraded() {
+        return new OwnerDetails(id, firstName, lastName, address, city, telephone, pets, true);
+    }
+
 
     public static final class OwnerDetailsBuilder {
         private int id;
@@ -91,7 +101,7 @@ public record OwnerDetails(
         }
 
         public OwnerDetails build() {
-            return new OwnerDetails(id, firstName, lastName, address, city, telephone, pets);
+            return new OwnerDetails(id, firstName, lastName, address, city, telephone, pets, false);
         }
     }
 }
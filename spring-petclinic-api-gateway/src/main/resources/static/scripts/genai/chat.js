@@ -1,15 +1,31 @@
+// Each browser tab has its own conversation, hence its own chat memory on the server
+function conversationId() {
+    let id = sessionStorage.getItem('chatConversationId');
+    if (!id) {
+        // crypto.randomUUID() is only available to pages served over HTTPS or from localhost
+        id = window.crypto && crypto.randomUUID
+            ? crypto.randomUUID()
+            : Date.now().toString(36) + '-' + Math.random().toString(36).substring(2);
+        sessionStorage.setItem('chatConversationId', id);
+    }
+    return id;
+}
+
 function appendMessage(message, type) {
     const chatMessages = document.getElementById('chatbox-messages');
     const messageElement = document.createElement('div');
     messageElement.classList.add('chat-bubble', type);
+    chatMessages.appendChild(messageElement);
+    renderMessage(messageElement, message);
+    return messageElement;
+}
 
+function renderMessage(messageElement, message) {
     // Convert Markdown to HTML
-    const htmlContent = marked.parse(message); // Use marked.parse() for newer versions
-    messageElement.innerHTML = htmlContent;
-
-    chatMessages.appendChild(messageElement);
+    messageElement.innerHTML = marked.parse(message); // Use marked.parse() for newer versions
 
     // Scroll to the bottom of the chatbox to show the latest message
+    const chatMessages = document.getElementById('chatbox-messages');
     chatMessages.scrollTop = chatMessages.scrollHeight;
 }
 
@@ -38,26 +54,80 @@ function sendMessage() {
     // Display user message in the chatbox
     appendMessage(query, 'user');
 
-    // Send the message to the backend
-    fetch('/api/genai/chatclient', {
+    // Send the message to the backend and display the answer as its tokens arrive
+    const botMessage = appendMessage('', 'bot');
+    let answer = '';
+    let renderPending = false;
+    const onToken = token => {
+        answer += token;
+        // Re-render the Markdown at most once per frame, however fast the tokens come
+        if (!renderPending) {
+            renderPending = true;
+            requestAnimationFrame(() => {
+                renderPending = false;
+                renderMessage(botMessage, answer);
+            });
+        }
+    };
+
+    fetch('/api/genai/chatclient/stream', {
         method: 'POST',
         headers: {
             'Content-Type': 'application/json',
+            'Accept': 'text/event-stream',
+            'X-Conversation-Id': conversationId(),
         },
         body: JSON.stringify(query),
     })
-        .then(response => response.text())
-        .then(responseText => {
-            // Display the response from the server in the chatbox
-            appendMessage(responseText, 'bot');
+        .then(response => {
+            if (!response.ok || !response.body) {
+                throw new Error('Chat request failed with status ' + response.status);
+            }
+            return readEvents(response.body, onToken);
+        })
+        .then(() => {
+            if (!answer) {
+                answer = 'Chat is currently unavailable';
+                renderMessage(botMessage, answer);
+            }
         })
         .catch(error => {
             console.error('Error:', error);
-            // Display the fallback message in the chatbox
-            appendMessage('Chat is currently unavailable', 'bot');
+            // Display the fallback message in the chatbox, after what was already received
+            answer = answer ? answer + '\n\n*Chat is currently unavailable*' : 'Chat is currently unavailable';
+            renderMessage(botMessage, answer);
         });
 }
 
+// Reads a server-sent events stream and passes the content of each {"content": "..."} event to onToken
+async function readEvents(body, onToken) {
+    const reader = body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+        const { done, value } = await reader.read();
+        if (done) {
+            break;
+        }
+        buffer += decoder.decode(value, { stream: true });
+        // Events are separated by a blank line; the last part may still be incomplete
+        const events = buffer.split(/\r?\n\r?\n/);
+        buffer = events.pop();
+        events.forEach(event => handleEvent(event, onToken));
+    }
+    handleEvent(buffer, onToken);
+}
+
+function handleEvent(event, onToken) {
+    const data = event.split(/\r?\n/)
+        .filter(line => line.startsWith('data:'))
+        .map(line => line.substring(5))
+        .join('\n');
+    if (data) {
+        onToken(JSON.parse(data).content);
+    }
+}
+
 function handleKeyPress(event) {
     if (event.key === "Enter") {
         event.preventDefault(); // Prevents adding a newline
@@ -3,8 +3,43 @@
 angular.module('ownerList')
     .controller('OwnerListController', ['$http', function ($http) {
         var self = this;
+        var pageSize = 50;
+        var requests = 0;
 
-        $http.get('api/customer/owners').then(function (resp) {
-            self.owners = resp.data;
-        });
+        self.owners = [];
+        self.nextCursor = null;
+        self.query = '';
+
+        // Owners are fetched one keyset page at a time, sorted by last name.
+        // The search filter is applied by the customers-service, so that it covers every owner.
+        self.loadMore = function () {
+            var params = {size: pageSize, sort: 'lastName'};
+            if (self.query) {
+                params.name = self.query;
+            }
+            if (self.nextCursor) {
+                params.cursor = self.nextCursor;
+            }
+            var request = ++requests;
+            self.loading = true;
+            $http.get('api/customer/owners', {params: params}).then(function (resp) {
+                // Ignore the pages of a search that has been replaced since
+                if (request === requests) {
+                    self.owners = self.owners.concat(resp.data.owners);
+                    self.nextCursor = resp.data.nextCursor;
+                }
+            }).finally(function () {
+                if (request === requests) {
+                    self.loading = false;
+                }
+            });
+        };
+
+        self.search = function () {
+            self.owners = [];
+            self.nextCursor = null;
+            self.loadMore();
+        };
+
+        self.loadMore();
     }]);
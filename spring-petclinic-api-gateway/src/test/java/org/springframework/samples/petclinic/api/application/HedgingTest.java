@@ -0,0 +1,75 @@
+package org.springframework.samples.petclinic.api.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HedgingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ServiceClientsProperties.Budget budget =
+        new ServiceClientsProperties.Budget(Duration.ofSeconds(1), 0.9, Duration.ofMillis(20));
+
+    @Test
+    void doesNotHedgeBeforeEnoughLatenciesAreKnown() {
+        Hedging hedging = new Hedging("test", budget, meterRegistry);
+
+        assertNull(hedging.hedgeDelay());
+    }
+
+    @Test
+    void doesNotHedgeWithoutPercentile() {
+        Hedging hedging = new Hedging("test", ServiceClientsProperties.Budget.DEFAULTS, meterRegistry);
+        warmUp(hedging);
+
+        assertNull(hedging.hedgeDelay());
+    }
+
+    @Test
+    void slowCallIsRacedAgainstASecondOne() {
+        Hedging hedging = new Hedging("test", budget, meterRegistry);
+        warmUp(hedging);
+        AtomicInteger calls = new AtomicInteger();
+
+        // The first call hangs, the hedged one answers
+        String result = hedging.call(Mono.defer(() -> calls.incrementAndGet() == 1 ? Mono.never() : Mono.just("visits")))
+            .block(Duration.ofSeconds(5));
+
+        assertEquals("visits", result);
+        assertEquals(2, calls.get());
+        assertEquals(1, meterRegistry.get("petclinic.gateway.hedged").counter().count());
+    }
+
+    @Test
+    void failedCallIsNotHedged() {
+        Hedging hedging = new Hedging("test", budget, meterRegistry);
+        warmUp(hedging);
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<String> call = hedging.call(Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("visits-service down"));
+        }));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> call.block(Duration.ofSeconds(5)));
+        assertEquals("visits-service down", error.getMessage());
+        // Wait past the hedge delay: no second call may follow
+        Mono.delay(Duration.ofMillis(100)).block();
+        assertEquals(1, calls.get());
+        assertEquals(0, meterRegistry.get("petclinic.gateway.hedged").counter().count());
+    }
+
+    private void warmUp(Hedging hedging) {
+        for (int i = 0; i < 20; i++) {
+            hedging.call(Mono.just("warm-up")).block();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.springframework.samples.petclinic.api.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void concurrentCallsForTheSameKeyShareOneUpstreamCall() {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", 10, Duration.ZERO, meterRegistry);
+        Sinks.One<String> upstream = Sinks.one();
+
+        Mono<String> first = singleFlight.execute(1, () -> call(upstream.asMono()));
+        Mono<String> second = singleFlight.execute(1, () -> call(upstream.asMono()));
+        upstream.tryEmitValue("owner 1");
+
+        assertEquals("owner 1", first.block());
+        assertEquals("owner 1", second.block());
+        assertEquals(1, calls.get());
+        assertEquals(1, count("executed"));
+        assertEquals(1, count("collapsed"));
+    }
+
+    @Test
+    void completedCallsAreForgottenWithoutResultTtl() {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", 10, Duration.ZERO, meterRegistry);
+
+        singleFlight.execute(1, () -> call(Mono.just("owner 1"))).block();
+        singleFlight.execute(1, () -> call(Mono.just("owner 1"))).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void completedResultsAreReusedWithinTheirTtl() {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", 10, Duration.ofMinutes(1), meterRegistry);
+
+        singleFlight.execute(1, () -> call(Mono.just("owner 1"))).block();
+        singleFlight.execute(1, () -> call(Mono.just("owner 1"))).block();
+        singleFlight.execute(2, () -> call(Mono.just("owner 2"))).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void rejectedResultsAreNotReused() {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", 10, Duration.ofMinutes(1),
+            result -> !result.endsWith("degraded"), meterRegistry);
+
+        singleFlight.execute(1, () -> call(Mono.just("owner 1 degraded"))).block();
+        String retried = singleFlight.execute(1, () -> call(Mono.just("owner 1"))).block();
+        singleFlight.execute(1, () -> call(Mono.just("owner 1"))).block();
+
+        assertEquals("owner 1", retried);
+        assertEquals(2, calls.get());
+    }
+
+    private Mono<String> call(Mono<String> result) {
+        calls.incrementAndGet();
+        return result;
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("petclinic.gateway.singleflight").tag("result", result).counter().count();
+    }
+}
@@ -1,7 +1,9 @@
 package org.springframework.samples.petclinic.api.application;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,11 +12,15 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class VisitsServiceClientIntegrationTest {
 
@@ -27,8 +33,7 @@ class VisitsServiceClientIntegrationTest {
     @BeforeEach
     void setUp() {
         server = new MockWebServer();
-        visitsServiceClient = new VisitsServiceClient(WebClient.builder());
-        visitsServiceClient.setHostname(server.url("/").toString());
+        visitsServiceClient = newVisitsServiceClient(ServiceClientsProperties.FanOut.DEFAULTS);
     }
 
     @AfterEach
@@ -37,7 +42,7 @@ class VisitsServiceClientIntegrationTest {
     }
 
     @Test
-    void getVisitsForPets_withAvailableVisitsService() {
+    void getVisitsForPets_withAvailableVisitsService() throws InterruptedException {
         prepareResponse(response -> response
             .setHeader("Content-Type", "application/json")
             .setBody("{\"items\":[{\"id\":5,\"date\":\"2018-11-15\",\"description\":\"test visit\",\"petId\":1}]}"));
@@ -45,6 +50,31 @@ class VisitsServiceClientIntegrationTest {
         Mono<Visits> visits = visitsServiceClient.getVisitsForPets(Collections.singletonList(1));
 
         assertVisitDescriptionEquals(visits.block(), PET_ID,"test visit");
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/pets/visits", request.getPath());
+        assertEquals("{\"petIds\":[1],\"latest\":" + VisitsServiceClient.LATEST_VISITS_PER_PET + "}",
+            request.getBody().readUtf8());
+    }
+
+    @Test
+    void getVisitsForPets_splitsLargePetListsIntoChunks() throws InterruptedException {
+        visitsServiceClient = newVisitsServiceClient(new ServiceClientsProperties.FanOut(2, 1, Duration.ofSeconds(1)));
+        prepareResponse(response -> response
+            .setHeader("Content-Type", "application/json")
+            .setBody("{\"items\":[{\"id\":5,\"description\":\"first\",\"petId\":1}]}"));
+        prepareResponse(response -> response
+            .setHeader("Content-Type", "application/json")
+            .setBody("{\"items\":[{\"id\":6,\"description\":\"second\",\"petId\":3}]}"));
+
+        Visits visits = visitsServiceClient.getVisitsForPets(List.of(1, 2, 3)).block();
+
+        assertEquals(2, visits.items().size());
+        assertEquals("first", visits.items().get(0).description());
+        assertEquals("second", visits.items().get(1).description());
+        assertEquals(2, server.getRequestCount());
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("[1,2]"));
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("[3]"));
     }
 
 
@@ -55,6 +85,14 @@ class VisitsServiceClientIntegrationTest {
         assertEquals(description, visits.items().get(0).description());
     }
 
+    private VisitsServiceClient newVisitsServiceClient(ServiceClientsProperties.FanOut fanOut) {
+        ServiceClientsProperties properties = new ServiceClientsProperties(Map.of(), fanOut, Map.of());
+        VisitsServiceClient client = new VisitsServiceClient(
+            new ServiceWebClientFactory(WebClient.builder(), properties), properties, new SimpleMeterRegistry());
+        client.setHostname(server.url("/").toString());
+        return client;
+    }
+
     private void prepareResponse(Consumer<MockResponse> consumer) {
         MockResponse response = new MockResponse();
         consumer.accept(response);
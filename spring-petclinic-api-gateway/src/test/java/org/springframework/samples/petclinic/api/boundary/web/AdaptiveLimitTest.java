@@ -0,0 +1,52 @@
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void shouldShrinkWhenLatencyGrows() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 20);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(10 * MILLIS, 20);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(200 * MILLIS, 20);
+        }
+
+        assertThat(limit.limit()).isLessThan(10).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldGrowBackOnceLatencyRecovers() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 20);
+        limit.onSample(10 * MILLIS, 20);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(200 * MILLIS, 20);
+        }
+        int shrunk = limit.limit();
+
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(10 * MILLIS, limit.limit());
+        }
+
+        assertThat(limit.limit()).isGreaterThan(shrunk);
+    }
+
+    @Test
+    void shouldNotMoveWhileMostlyIdle() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 20);
+        limit.onSample(10 * MILLIS, 1);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(200 * MILLIS, 1);
+        }
+
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+}
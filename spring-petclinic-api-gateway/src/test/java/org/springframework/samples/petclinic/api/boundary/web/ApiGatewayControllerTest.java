@@ -13,6 +13,7 @@ import org.springframework.samples.petclinic.api.application.VisitsServiceClient
 import org.springframework.samples.petclinic.api.dto.*;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.ConnectException;
@@ -61,7 +62,47 @@ class ApiGatewayControllerTest {
             .expectStatus().isOk()
             .expectBody()
             .jsonPath("$.pets[0].name").isEqualTo("Garfield")
-            .jsonPath("$.pets[0].visits[0].description").isEqualTo("First visit");
+            .jsonPath("$.pets[0].visits[0].description").isEqualTo("First visit")
+            .jsonPath("$.visitsDegraded").doesNotExist();
+    }
+
+    @Test
+    void getOwnerDetails_attachesVisitsToTheirPets() {
+        PetDetails cat = PetDetails.PetDetailsBuilder.aPetDetails()
+            .id(20)
+            .name("Garfield")
+            .visits(new ArrayList<>())
+            .build();
+        PetDetails dog = PetDetails.PetDetailsBuilder.aPetDetails()
+            .id(21)
+            .name("Odie")
+            .visits(new ArrayList<>())
+            .build();
+        OwnerDetails owner = OwnerDetails.OwnerDetailsBuilder.anOwnerDetails()
+            .pets(List.of(cat, dog))
+            .build();
+        Mockito
+            .when(customersServiceClient.getOwner(1))
+            .thenReturn(Mono.just(owner));
+
+        Visits visits = new Visits(List.of(
+            new VisitDetails(300, dog.id(), null, "Dog visit"),
+            new VisitDetails(301, cat.id(), null, "Cat visit"),
+            new VisitDetails(302, dog.id(), null, "Dog follow-up")));
+        Mockito
+            .when(visitsServiceClient.getVisitsForPets(List.of(cat.id(), dog.id())))
+            .thenReturn(Mono.just(visits));
+
+        client.get()
+            .uri("/api/gateway/owners/1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.pets[0].visits.length()").isEqualTo(1)
+            .jsonPath("$.pets[0].visits[0].description").isEqualTo("Cat visit")
+            .jsonPath("$.pets[1].visits.length()").isEqualTo(2)
+            .jsonPath("$.pets[1].visits[0].description").isEqualTo("Dog visit")
+            .jsonPath("$.pets[1].visits[1].description").isEqualTo("Dog follow-up");
     }
 
     /**
@@ -91,7 +132,50 @@ class ApiGatewayControllerTest {
             .expectStatus().isOk()
             .expectBody()
             .jsonPath("$.pets[0].name").isEqualTo("Garfield")
-            .jsonPath("$.pets[0].visits").isEmpty();
+            .jsonPath("$.pets[0].visits").isEmpty()
+            .jsonPath("$.visitsDegraded").isEqualTo(true);
+    }
+
+    @Test
+    void getOwnersDetails_withSingleVisitsCall() {
+        PetDetails cat = PetDetails.PetDetailsBuilder.aPetDetails()
+            .id(20)
+            .name("Garfield")
+            .visits(new ArrayList<>())
+            .build();
+        PetDetails dog = PetDetails.PetDetailsBuilder.aPetDetails()
+            .id(21)
+            .name("Odie")
+            .visits(new ArrayList<>())
+            .build();
+        OwnerDetails jon = OwnerDetails.OwnerDetailsBuilder.anOwnerDetails()
+            .id(1)
+            .pets(List.of(cat))
+            .build();
+        OwnerDetails liz = OwnerDetails.OwnerDetailsBuilder.anOwnerDetails()
+            .id(2)
+            .pets(List.of(dog))
+            .build();
+        Mockito
+            .when(customersServiceClient.getOwners(List.of(1, 2)))
+            .thenReturn(Flux.just(jon, liz));
+
+        Visits visits = new Visits(List.of(
+            new VisitDetails(300, cat.id(), null, "First visit"),
+            new VisitDetails(301, dog.id(), null, "Second visit")));
+        Mockito
+            .when(visitsServiceClient.getVisitsForPets(List.of(cat.id(), dog.id())))
+            .thenReturn(Mono.just(visits));
+
+        client.get()
+            .uri("/api/gateway/owners?ownerId=1,2")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].pets[0].visits[0].description").isEqualTo("First visit")
+            .jsonPath("$[1].pets[0].visits[0].description").isEqualTo("Second visit");
+
+        Mockito.verify(visitsServiceClient, Mockito.times(1)).getVisitsForPets(Mockito.anyList());
     }
 
 }
@@ -0,0 +1,74 @@
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkheadGatewayFilterFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final Sinks.Empty<Void> upstreamDone = Sinks.empty();
+
+    @Test
+    void shouldRejectRequestsOverTheLimit() {
+        GatewayFilter filter = newFilter(2, HttpStatus.TOO_MANY_REQUESTS);
+
+        filter.filter(get(), slowUpstream()).subscribe();
+        filter.filter(get(), slowUpstream()).subscribe();
+        MockServerWebExchange third = get();
+        filter.filter(third, slowUpstream()).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(third.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(third.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("petclinic.gateway.bulkhead.rejected").tag("name", "gateway-genai-service")
+            .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReleaseThePermitOnceTheResponseIsComplete() {
+        GatewayFilter filter = newFilter(1, HttpStatus.SERVICE_UNAVAILABLE);
+
+        filter.filter(get(), slowUpstream()).subscribe();
+        upstreamDone.tryEmitEmpty();
+        MockServerWebExchange second = get();
+        filter.filter(second, exchange -> Mono.fromRunnable(upstreamCalls::incrementAndGet)).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(second.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private GatewayFilter newFilter(int maxConcurrentCalls, HttpStatus statusCode) {
+        BulkheadGatewayFilterFactory.Config config = new BulkheadGatewayFilterFactory.Config();
+        config.setRouteId("genai-service");
+        config.setMaxConcurrentCalls(maxConcurrentCalls);
+        config.setMinConcurrentCalls(maxConcurrentCalls);
+        config.setStatusCode(statusCode);
+        return new BulkheadGatewayFilterFactory(meterRegistry).apply(config);
+    }
+
+    private static MockServerWebExchange get() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/chatclient"));
+    }
+
+    private GatewayFilterChain slowUpstream() {
+        return exchange -> Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            return upstreamDone.asMono();
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams a response through a route declared like those of {@code application.yml}: its permit
+ * must be held until the last event, not only until the headers arrived.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BulkheadRouteTest {
+
+    private static final MockWebServer upstream = new MockWebServer();
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @LocalServerPort
+    int port;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "genai-service");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> upstream.url("/").toString());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/genai/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0]", () -> "StripPrefix=2");
+        registry.add("spring.cloud.gateway.routes[0].filters[1]", () -> "Bulkhead=1,1");
+    }
+
+    @AfterAll
+    static void shutdown() throws IOException {
+        upstream.shutdown();
+    }
+
+    @Test
+    void shouldHoldThePermitUntilTheStreamIsComplete() throws Exception {
+        upstream.enqueue(new MockResponse()
+            .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+            .setBody("data:one\n\ndata:two\n\ndata:three\n\n")
+            // The events trickle in over about a second
+            .throttleBody(10, 300, TimeUnit.MILLISECONDS));
+        CountDownLatch firstEvent = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> events = WebClient.create("http://localhost:" + port)
+            .get().uri("/api/genai/chatclient/stream")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .retrieve()
+            .bodyToFlux(String.class)
+            .doOnNext(event -> firstEvent.countDown())
+            .collectList()
+            .toFuture();
+        assertThat(firstEvent.await(5, TimeUnit.SECONDS)).isTrue();
+
+        webTestClient.get().uri("/api/genai/chatclient/stream").exchange()
+            .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(events.get(5, TimeUnit.SECONDS)).containsExactly("one", "two", "three");
+        assertThat(upstream.getRequestCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,72 @@
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams a chat answer through the genai route declared like that of {@code application.yml}, behind
+ * its own circuit breaker and the default one, for longer than the 10 seconds of the default time limit.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class GenaiStreamRouteTest {
+
+    private static final MockWebServer upstream = new MockWebServer();
+
+    @LocalServerPort
+    int port;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "genai-service");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> upstream.url("/").toString());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/genai/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0]", () -> "StripPrefix=2");
+        registry.add("spring.cloud.gateway.routes[0].filters[1]",
+            () -> "CircuitBreaker=name=genaiCircuitBreaker,fallbackUri=/fallback");
+        registry.add("spring.cloud.gateway.routes[0].filters[2]", () -> "Bulkhead=10,2");
+    }
+
+    @AfterAll
+    static void shutdown() throws IOException {
+        upstream.shutdown();
+    }
+
+    @Test
+    void shouldStreamTheAnswerForLongerThanTheDefaultTimeLimit() {
+        upstream.enqueue(new MockResponse()
+            .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+            .setBody("data:1\n\ndata:2\n\ndata:3\n\ndata:4\n\n")
+            // One event every 4 seconds: the last one arrives after about 12 seconds
+            .throttleBody(8, 4, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+
+        List<String> events = WebClient.create("http://localhost:" + port)
+            .post().uri("/api/genai/chatclient/stream")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .retrieve()
+            .bodyToFlux(String.class)
+            .collectList()
+            .block(Duration.ofSeconds(30));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(Duration.ofSeconds(10));
+        assertThat(events).containsExactly("1", "2", "3", "4");
+    }
+}
@@ -0,0 +1,106 @@
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final GatewayFilter filter = newFilter();
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private String cacheControl;
+
+    private Duration upstreamDelay = Duration.ZERO;
+
+    @Test
+    void shouldServeTheSecondRequestFromTheCache() {
+        MockServerWebExchange first = get();
+        MockServerWebExchange second = get();
+
+        filter.filter(first, upstream()).block();
+        filter.filter(second, upstream()).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("[{\"id\":1}]");
+        assertThat(second.getResponse().getHeaders().getETag()).isEqualTo("\"v1\"");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "gateway-vets-service").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAnswerNotModifiedToAMatchingETag() {
+        filter.filter(get(), upstream()).block();
+
+        MockServerWebExchange conditional = MockServerWebExchange.from(
+            MockServerHttpRequest.get("/vets").header(HttpHeaders.IF_NONE_MATCH, "\"v1\""));
+        filter.filter(conditional, upstream()).block();
+
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldNotStoreNoStoreResponses() {
+        cacheControl = "no-store";
+
+        filter.filter(get(), upstream()).block();
+        filter.filter(get(), upstream()).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentMisses() {
+        upstreamDelay = Duration.ofMillis(100);
+        MockServerWebExchange first = get();
+        MockServerWebExchange second = get();
+
+        Mono.when(filter.filter(first, upstream()), filter.filter(second, upstream())).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("[{\"id\":1}]");
+    }
+
+    private GatewayFilter newFilter() {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setRouteId("vets-service");
+        return new ResponseCacheGatewayFilterFactory(meterRegistry).apply(config);
+    }
+
+    private static MockServerWebExchange get() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/vets"));
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> Mono.delay(upstreamDelay).then(Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setETag("\"v1\"");
+            if (cacheControl != null) {
+                response.getHeaders().setCacheControl(cacheControl);
+            }
+            byte[] body = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }));
+    }
+}
@@ -0,0 +1,116 @@
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends requests through a route declared like those of {@code application.yml}, so that the cache
+ * runs among the global filters of the gateway and sees the body the upstream service wrote.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ResponseCacheRouteTest {
+
+    private static final Map<String, AtomicInteger> upstreamCalls = new ConcurrentHashMap<>();
+
+    private static final MockWebServer upstream = new MockWebServer();
+
+    static {
+        upstream.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                upstreamCalls.computeIfAbsent(request.getPath(), path -> new AtomicInteger()).incrementAndGet();
+                if (request.getPath().equals("/failing")) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                return new MockResponse()
+                    .setHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .setBody("[{\"id\":1}]")
+                    // Long enough for the concurrent requests to all arrive while the first is in flight
+                    .setHeadersDelay(300, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @LocalServerPort
+    int port;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.gateway.routes[0].id", () -> "vets-service");
+        registry.add("spring.cloud.gateway.routes[0].uri", () -> upstream.url("/").toString());
+        registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/vet/**");
+        registry.add("spring.cloud.gateway.routes[0].filters[0]", () -> "StripPrefix=2");
+        registry.add("spring.cloud.gateway.routes[0].filters[1]", () -> "ResponseCache=5m,100,5MB");
+    }
+
+    @AfterAll
+    static void shutdown() throws IOException {
+        upstream.shutdown();
+    }
+
+    @Test
+    void shouldServeTheSecondRequestFromTheCache() {
+        webTestClient.get().uri("/api/vet/vets").exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo("[{\"id\":1}]");
+
+        webTestClient.get().uri("/api/vet/vets").exchange()
+            .expectStatus().isOk()
+            .expectHeader().exists(HttpHeaders.AGE)
+            .expectBody(String.class).isEqualTo("[{\"id\":1}]");
+
+        assertThat(upstreamCalls.get("/vets")).hasValue(1);
+    }
+
+    @Test
+    void shouldSendConcurrentMissesUpstreamOnce() {
+        // WebTestClient waits for each response, so the requests are sent by a WebClient
+        WebClient webClient = WebClient.create("http://localhost:" + port);
+        List<String> bodies = Flux.range(0, 5)
+            .flatMap(i -> webClient.get().uri("/api/vet/specialties").retrieve().bodyToMono(String.class))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(bodies).hasSize(5).containsOnly("[{\"id\":1}]");
+        assertThat(upstreamCalls.get("/specialties")).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheErrors() {
+        webTestClient.get().uri("/api/vet/failing").exchange()
+            .expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        webTestClient.get().uri("/api/vet/failing").exchange()
+            .expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+
+        assertThat(upstreamCalls.get("/failing")).hasValue(2);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.samples.petclinic.api.dto.OwnerDetails;
+import org.springframework.samples.petclinic.api.dto.PetDetails;
+import org.springframework.samples.petclinic.api.dto.VisitDetails;
+import org.springframework.samples.petclinic.api.dto.Visits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-pet scan the gateway used to merge visits into an owner with the per-pet index
+ * of {@link ApiGatewayController#groupByPetId(Visits)}, for owners of 10, 100 and 1000 pets having
+ * {@value #VISITS_PER_PET} visits each, in random order.
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.springframework.samples.petclinic.api.boundary.web.VisitsMergeBenchmark}
+ * from the api-gateway directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisitsMergeBenchmark {
+
+    private static final int VISITS_PER_PET = 10;
+
+    @Param({"10", "100", "1000"})
+    int pets;
+
+    private OwnerDetails owner;
+
+    private Visits visits;
+
+    @Setup
+    public void setUp() {
+        List<PetDetails> petDetails = new ArrayList<>(pets);
+        List<VisitDetails> items = new ArrayList<>(pets * VISITS_PER_PET);
+        for (int pet = 0; pet < pets; pet++) {
+            petDetails.add(PetDetails.PetDetailsBuilder.aPetDetails()
+                .id(pet)
+                .name("Pet " + pet)
+                .visits(new ArrayList<>())
+                .build());
+            for (int visit = 0; visit < VISITS_PER_PET; visit++) {
+                items.add(new VisitDetails(pet * VISITS_PER_PET + visit, pet, "2024-01-01", "Checkup"));
+            }
+        }
+        Collections.shuffle(items, new Random(42));
+        owner = OwnerDetails.OwnerDetailsBuilder.anOwnerDetails()
+            .id(1)
+            .pets(petDetails)
+            .build();
+        visits = new Visits(items);
+    }
+
+    @Benchmark
+    public OwnerDetails scanPerPet() {
+        clearVisits();
+        owner.pets()
+            .forEach(pet -> pet.visits()
+                .addAll(visits.items().stream()
+                    .filter(v -> v.petId() == pet.id())
+                    .toList())
+            );
+        return owner;
+    }
+
+    @Benchmark
+    public OwnerDetails indexByPetId() {
+        clearVisits();
+        ApiGatewayController.addVisitsToOwner(owner, ApiGatewayController.groupByPetId(visits));
+        return owner;
+    }
+
+    /**
+     * Both benchmarks attach the visits to the same pets, so each starts by emptying them.
+     */
+    private void clearVisits() {
+        owner.pets().forEach(pet -> pet.visits().clear());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(VisitsMergeBenchmark.class.getSimpleName())
+            .build())
+            .run();
+    }
+}
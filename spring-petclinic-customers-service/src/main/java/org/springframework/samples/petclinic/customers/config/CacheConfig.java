@@ -0,0 +1,54 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.customers.model.PetRepository;
+import org.springframework.samples.petclinic.customers.model.PetType;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+@Configuration
+@EnableCaching
+@EnableScheduling
+public class CacheConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
+
+    private final PetRepository petRepository;
+    private final CacheManager cacheManager;
+
+    CacheConfig(PetRepository petRepository, CacheManager cacheManager) {
+        this.petRepository = petRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Loads all pet types with a single query so that creating or updating a pet never queries the types table.
+     * The caches never expire: they are reloaded on a schedule instead, so that requests keep finding the pet
+     * types cached. Entries are stored unwrapped, the same way the cache abstraction stores {@code Optional} results.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${pet-types.refresh-interval:1h}", initialDelayString = "${pet-types.refresh-interval:1h}")
+    public synchronized void reloadPetTypes() {
+        Cache petTypesCache = cacheManager.getCache(PetRepository.PET_TYPES_CACHE);
+        if (petTypesCache != null) {
+            petTypesCache.clear();
+        }
+        // Goes through the cache, which is empty: the list is read and cached again
+        List<PetType> petTypes = petRepository.findPetTypes();
+        Cache byIdCache = cacheManager.getCache(PetRepository.PET_TYPES_BY_ID_CACHE);
+        if (byIdCache != null) {
+            byIdCache.clear();
+            petTypes.forEach(petType -> byIdCache.put(petType.getId(), petType));
+        }
+        log.info("Loaded {} pet types", petTypes.size());
+    }
+}
@@ -15,11 +15,30 @@
  */
 package org.springframework.samples.petclinic.customers.model;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repository class for <code>Owner</code> domain objects All method names are compliant with Spring Data naming
  * conventions so this interface can easily be extended for Spring Data See here: http://static.springsource.org/spring-data/jpa/docs/current/reference/html/jpa.repositories.html#jpa.query-methods.query-creation
+ * <p>
+ * {@link Owner#getPets()} and {@link Pet#getType()} are lazy: every read that serializes owners declares the
+ * {@code pets} and {@code pets.type} fetch plan so that it runs a fixed number of SQL statements.
+ * Paged reads first select a page of ids, then the owners of that page with their pets, because fetching a
+ * collection together with a row limit would make Hibernate paginate in memory.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -27,4 +46,78 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * @author Michael Isvy
  * @author Maciej Szarlinski
  */
-public interface OwnerRepository extends JpaRepository<Owner, Integer> { }
+public interface OwnerRepository extends JpaRepository<Owner, Integer> {
+
+    @Override
+    @EntityGraph(attributePaths = {"pets", "pets.type"})
+    Optional<Owner> findById(Integer id);
+
+    @Override
+    @EntityGraph(attributePaths = {"pets", "pets.type"})
+    List<Owner> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = {"pets", "pets.type"})
+    List<Owner> findAllById(Iterable<Integer> ids);
+
+    /**
+     * Retrieve the given {@link Owner}s together with their pets and pet types, in the given order.
+     */
+    @EntityGraph(attributePaths = {"pets", "pets.type"})
+    @Query("SELECT owner FROM Owner owner WHERE owner.id IN :ids")
+    List<Owner> findAllWithPetsByIdIn(@Param("ids") Collection<Integer> ids, Sort sort);
+
+    /**
+     * Page of {@link Owner} ids by page number.
+     */
+    @Query(value = "SELECT owner.id FROM Owner owner", countQuery = "SELECT count(owner) FROM Owner owner")
+    Page<Integer> findIds(Pageable pageable);
+
+    /**
+     * Keyset page of {@link Owner} ids ordered by id, starting right after the given id.
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.id > :id ORDER BY owner.id")
+    List<Integer> findIdsAfterId(@Param("id") int id, Pageable pageable);
+
+    /**
+     * Keyset page of {@link Owner} ids ordered by last name then id, starting right after the given (lastName, id) key.
+     */
+    @Query("""
+        SELECT owner.id FROM Owner owner
+        WHERE owner.lastName > :lastName OR (owner.lastName = :lastName AND owner.id > :id)
+        ORDER BY owner.lastName, owner.id""")
+    List<Integer> findIdsAfterLastName(@Param("lastName") String lastName, @Param("id") int id, Pageable pageable);
+
+    /**
+     * Keyset page of the ids of the {@link Owner}s whose lower-cased first or last name matches the given
+     * {@code LIKE} pattern, escaped with {@code !}, ordered by id.
+     */
+    @Query("""
+        SELECT owner.id FROM Owner owner
+        WHERE owner.id > :id
+        AND (LOWER(owner.firstName) LIKE :name ESCAPE '!' OR LOWER(owner.lastName) LIKE :name ESCAPE '!')
+        ORDER BY owner.id""")
+    List<Integer> findIdsByNameAfterId(@Param("name") String namePattern, @Param("id") int id, Pageable pageable);
+
+    /**
+     * Keyset page of the ids of the {@link Owner}s whose lower-cased first or last name matches the given
+     * {@code LIKE} pattern, escaped with {@code !}, ordered by last name then id.
+     */
+    @Query("""
+        SELECT owner.id FROM Owner owner
+        WHERE (owner.lastName > :lastName OR (owner.lastName = :lastName AND owner.id > :id))
+        AND (LOWER(owner.firstName) LIKE :name ESCAPE '!' OR LOWER(owner.lastName) LIKE :name ESCAPE '!')
+        ORDER BY owner.lastName, owner.id""")
+    List<Integer> findIdsByNameAfterLastName(@Param("name") String namePattern, @Param("lastName") String lastName,
+                                             @Param("id") int id, Pageable pageable);
+
+    /**
+     * Streams every {@link Owner} with its pets ordered by id, reading the result set in chunks of 500 rows.
+     * Must be consumed inside a transaction. On MySQL, the JDBC URL needs {@code useCursorFetch=true}
+     * for the fetch size to be honoured.
+     */
+    @EntityGraph(attributePaths = {"pets", "pets.type"})
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT owner FROM Owner owner ORDER BY owner.id")
+    Stream<Owner> streamAll();
+}
@@ -45,7 +45,7 @@ public class Pet {
     @Temporal(TemporalType.DATE)
     private Date birthDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "type_id")
     private PetType type;
 
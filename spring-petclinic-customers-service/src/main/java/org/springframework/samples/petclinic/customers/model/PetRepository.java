@@ -18,6 +18,8 @@ package org.springframework.samples.petclinic.customers.model;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -34,13 +36,32 @@ import org.springframework.data.repository.query.Param;
  */
 public interface PetRepository extends JpaRepository<Pet, Integer> {
 
+    /**
+     * Pet types almost never change: the list and each type by id are cached without expiry, loaded at
+     * startup and reloaded in the background every {@code pet-types.refresh-interval}, see
+     * {@code CacheConfig}. Clearing them through the {@code caches} actuator endpoint makes the next
+     * read go to the database.
+     */
+    String PET_TYPES_CACHE = "petTypes";
+
+    String PET_TYPES_BY_ID_CACHE = "petTypesById";
+
+    /**
+     * Retrieve a {@link Pet} together with its owner and type in a single statement.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"owner", "type"})
+    Optional<Pet> findById(Integer id);
+
     /**
      * Retrieve all {@link PetType}s from the data store.
      * @return a Collection of {@link PetType}s.
      */
+    @Cacheable(PET_TYPES_CACHE)
     @Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
     List<PetType> findPetTypes();
 
+    @Cacheable(cacheNames = PET_TYPES_BY_ID_CACHE, key = "#typeId")
     @Query("FROM PetType ptype WHERE ptype.id = :typeId")
     Optional<PetType> findPetTypeById(@Param("typeId") int typeId);
 
@@ -0,0 +1,40 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a client in a keyset traversal of the owners, exchanged as an opaque URL-safe token.
+ */
+record OwnerCursor(Sort sort, String lastName, int id) {
+
+    enum Sort {
+        ID, LAST_NAME;
+
+        static Sort of(String value) {
+            return switch (value) {
+                case "id" -> ID;
+                case "lastName" -> LAST_NAME;
+                default -> throw new InvalidCursorException("Unsupported sort " + value);
+            };
+        }
+    }
+
+    static OwnerCursor first(Sort sort) {
+        return new OwnerCursor(sort, "", 0);
+    }
+
+    static OwnerCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 3);
+            return new OwnerCursor(Sort.valueOf(parts[0]), parts[2], Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor " + token);
+        }
+    }
+
+    String encode() {
+        String key = sort + ":" + id + ":" + (sort == Sort.LAST_NAME ? lastName : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
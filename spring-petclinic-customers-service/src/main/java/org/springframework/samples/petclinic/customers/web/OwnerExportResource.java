@@ -0,0 +1,70 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.model.Owner;
+import org.springframework.samples.petclinic.customers.model.OwnerRepository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Full export of the owners and their pets as newline-delimited JSON.
+ * <p>
+ * Owners are read through a database cursor and written one line at a time, each owner being detached from the
+ * persistence context once written, so memory use does not depend on the number of rows. Writes block while the
+ * client is not reading, and a client disconnect aborts the export and closes the cursor.
+ */
+@RequestMapping("/owners")
+@RestController
+@Timed("petclinic.owner.export")
+class OwnerExportResource {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerExportResource.class);
+
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final OwnerRepository ownerRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter ownerWriter;
+
+    OwnerExportResource(OwnerRepository ownerRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.ownerRepository = ownerRepository;
+        this.entityManager = entityManager;
+        this.ownerWriter = objectMapper.writerFor(Owner.class);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Transactional(readOnly = true)
+    public void exportOwners(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        int count = 0;
+        try (Stream<Owner> owners = ownerRepository.streamAll()) {
+            Iterator<Owner> iterator = owners.iterator();
+            while (iterator.hasNext()) {
+                Owner owner = iterator.next();
+                out.write(ownerWriter.writeValueAsBytes(owner));
+                out.write('\n');
+                entityManager.detach(owner);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        log.info("Exported {} owners", count);
+    }
+}
@@ -20,13 +20,20 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
 import org.springframework.samples.petclinic.customers.web.mapper.OwnerEntityMapper;
 import org.springframework.samples.petclinic.customers.model.Owner;
 import org.springframework.samples.petclinic.customers.model.OwnerRepository;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 /**
@@ -43,6 +50,10 @@ class OwnerResource {
 
     private static final Logger log = LoggerFactory.getLogger(OwnerResource.class);
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Sort BY_ID = Sort.by("id");
+    private static final Sort BY_LAST_NAME = Sort.by("lastName", "id");
+
     private final OwnerRepository ownerRepository;
     private final OwnerEntityMapper ownerEntityMapper;
 
@@ -77,6 +88,69 @@ class OwnerResource {
         return ownerRepository.findAll();
     }
 
+    /**
+     * Read a page of Owners by page number
+     */
+    @GetMapping(params = "page")
+    public PagedModel<Owner> findPage(@RequestParam("page") @Min(0) int page,
+                                      @RequestParam(value = "size", defaultValue = "20") @Min(1) int size) {
+        Page<Integer> ids = ownerRepository.findIds(PageRequest.of(page, pageSize(size), BY_ID));
+        List<Owner> owners = ids.isEmpty() ? List.of() : ownerRepository.findAllWithPetsByIdIn(ids.getContent(), BY_ID);
+        return new PagedModel<>(new PageImpl<>(owners, ids.getPageable(), ids.getTotalElements()));
+    }
+
+    /**
+     * Read a page of Owners following a keyset cursor, sorted either by id or by last name.
+     * Unlike page numbers, the cost of a cursor does not grow with its position in the table.
+     * With a {@code name}, only the Owners whose first or last name contains it, whatever its case,
+     * are read; the following pages must be requested with the same {@code name}.
+     */
+    @GetMapping(params = {"size", "!page"})
+    public OwnersSlice findSlice(@RequestParam("size") @Min(1) int size,
+                                 @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                 @RequestParam(value = "name", required = false) String name) {
+        OwnerCursor position = cursor == null ? OwnerCursor.first(OwnerCursor.Sort.of(sort)) : OwnerCursor.decode(cursor);
+        int limit = pageSize(size);
+        // Fetch one extra id to find out whether there is a next page
+        PageRequest pageRequest = PageRequest.ofSize(limit + 1);
+        List<Integer> ids;
+        if (StringUtils.hasText(name)) {
+            String namePattern = containing(name);
+            ids = switch (position.sort()) {
+                case ID -> ownerRepository.findIdsByNameAfterId(namePattern, position.id(), pageRequest);
+                case LAST_NAME -> ownerRepository.findIdsByNameAfterLastName(namePattern, position.lastName(), position.id(), pageRequest);
+            };
+        } else {
+            ids = switch (position.sort()) {
+                case ID -> ownerRepository.findIdsAfterId(position.id(), pageRequest);
+                case LAST_NAME -> ownerRepository.findIdsAfterLastName(position.lastName(), position.id(), pageRequest);
+            };
+        }
+        boolean hasNext = ids.size() > limit;
+        if (hasNext) {
+            ids = ids.subList(0, limit);
+        }
+        if (ids.isEmpty()) {
+            return new OwnersSlice(List.of(), null);
+        }
+        Sort order = position.sort() == OwnerCursor.Sort.ID ? BY_ID : BY_LAST_NAME;
+        List<Owner> owners = ownerRepository.findAllWithPetsByIdIn(ids, order);
+        if (!hasNext) {
+            return new OwnersSlice(owners, null);
+        }
+        Owner last = owners.get(owners.size() - 1);
+        return new OwnersSlice(owners, new OwnerCursor(position.sort(), last.getLastName(), last.getId()).encode());
+    }
+
+    /**
+     * Read List of Owners by their identifiers
+     */
+    @GetMapping(params = "ownerId")
+    public List<Owner> findAllById(@RequestParam("ownerId") List<Integer> ownerIds) {
+        return ownerRepository.findAllById(ownerIds);
+    }
+
     /**
      * Update Owner
      */
@@ -89,4 +163,19 @@ class OwnerResource {
         log.info("Saving owner {}", ownerModel);
         ownerRepository.save(ownerModel);
     }
+
+    private static int pageSize(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * {@code LIKE} pattern, escaped with {@code !}, matching the lower-cased values that contain the given text.
+     */
+    private static String containing(String text) {
+        String escaped = text.trim().toLowerCase(Locale.ROOT)
+            .replace("!", "!!")
+            .replace("%", "!%")
+            .replace("_", "!_");
+        return "%" + escaped + "%";
+    }
 }
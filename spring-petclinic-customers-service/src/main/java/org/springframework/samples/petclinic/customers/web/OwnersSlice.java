@@ -0,0 +1,14 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.springframework.samples.petclinic.customers.model.Owner;
+
+import java.util.List;
+
+/**
+ * One keyset page of owners. {@code nextCursor} is {@code null} once the last owner has been returned.
+ */
+record OwnersSlice(
+    List<Owner> owners,
+    String nextCursor
+) {
+}
@@ -0,0 +1,101 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the fetch plans declared in the repositories load owners, pets and pet types
+ * with a constant number of SQL statements.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class OwnerRepositoryTest {
+
+    @Autowired
+    OwnerRepository ownerRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllShouldLoadOwnersWithPetsAndTypesInOneStatement() {
+        List<Owner> owners = ownerRepository.findAll();
+
+        assertThat(owners).hasSize(10);
+        assertThat(petTypeNames(owners)).hasSize(13);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByIdShouldLoadOwnerWithPetsAndTypesInOneStatement() {
+        Owner owner = ownerRepository.findById(6).orElseThrow();
+
+        assertThat(petTypeNames(List.of(owner))).containsExactly("cat", "cat");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findAllWithPetsByIdInShouldLoadOwnersWithPetsAndTypesInOneStatement() {
+        List<Owner> owners = ownerRepository.findAllWithPetsByIdIn(List.of(3, 10), Sort.by("id"));
+
+        assertThat(owners).extracting(Owner::getId).containsExactly(3, 10);
+        assertThat(petTypeNames(owners)).hasSize(4);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findIdsByNameAfterLastNameShouldMatchFirstAndLastNames() {
+        List<Integer> ids = ownerRepository.findIdsByNameAfterLastName("%dav%", "", 0, PageRequest.ofSize(10));
+
+        // Betty and Harold Davis, then David Schroeder
+        assertThat(ids).containsExactly(2, 4, 9);
+    }
+
+    @Test
+    void findIdsByNameAfterLastNameShouldStartAfterTheCursor() {
+        List<Integer> ids = ownerRepository.findIdsByNameAfterLastName("%dav%", "Davis", 2, PageRequest.ofSize(10));
+
+        assertThat(ids).containsExactly(4, 9);
+    }
+
+    @Test
+    void findPetByIdShouldLoadPetWithOwnerAndTypeInOneStatement() {
+        Pet pet = petRepository.findById(7).orElseThrow();
+
+        assertThat(pet.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(pet.getType().getName()).isEqualTo("cat");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private static List<String> petTypeNames(List<Owner> owners) {
+        return owners.stream()
+            .flatMap(owner -> owner.getPets().stream())
+            .map(pet -> pet.getType().getName())
+            .toList();
+    }
+}
@@ -0,0 +1,58 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.model.Owner;
+import org.springframework.samples.petclinic.customers.model.OwnerRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(OwnerExportResource.class)
+@ActiveProfiles("test")
+class OwnerExportResourceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OwnerRepository ownerRepository;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    @Test
+    void shouldExportOneOwnerPerLine() throws Exception {
+        Owner john = new Owner();
+        john.setFirstName("John");
+        Owner jane = new Owner();
+        jane.setFirstName("Jane");
+
+        given(ownerRepository.streamAll()).willReturn(Stream.of(john, jane));
+
+        String body = mockMvc.perform(get("/owners/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"firstName\":\"John\"");
+        assertThat(lines[1]).contains("\"firstName\":\"Jane\"");
+        verify(entityManager, times(2)).detach(any(Owner.class));
+    }
+}
@@ -1,5 +1,6 @@
 package org.springframework.samples.petclinic.customers.web;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
@@ -7,6 +8,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.samples.petclinic.customers.model.Owner;
 import org.springframework.samples.petclinic.customers.model.OwnerRepository;
 import org.springframework.samples.petclinic.customers.web.mapper.OwnerEntityMapper;
@@ -15,6 +18,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -67,4 +72,79 @@ public class OwnerResourceTest {
                 .andExpect(jsonPath("$.firstName").value("Jane"))
                 .andExpect(jsonPath("$.lastName").value("Doe"));
     }
+
+    @Test
+    void shouldGetOwnersByIds() throws Exception {
+        Owner john = new Owner();
+        john.setFirstName("John");
+        Owner jane = new Owner();
+        jane.setFirstName("Jane");
+
+        given(ownerRepository.findAllById(List.of(1, 2))).willReturn(List.of(john, jane));
+
+        mockMvc.perform(get("/owners?ownerId=1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].firstName").value("John"))
+                .andExpect(jsonPath("$[1].firstName").value("Jane"));
+    }
+
+    @Test
+    void shouldGetOwnersSliceWithNextCursor() throws Exception {
+        Owner first = owner(1, "Black");
+        Owner second = owner(2, "Coleman");
+
+        given(ownerRepository.findIdsAfterLastName(eq(""), eq(0), any(Pageable.class)))
+                .willReturn(List.of(1, 2, 3));
+        given(ownerRepository.findAllWithPetsByIdIn(eq(List.of(1, 2)), any(Sort.class)))
+                .willReturn(List.of(first, second));
+
+        String nextCursor = new OwnerCursor(OwnerCursor.Sort.LAST_NAME, "Coleman", 2).encode();
+        mockMvc.perform(get("/owners?size=2&sort=lastName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.owners.length()").value(2))
+                .andExpect(jsonPath("$.owners[1].lastName").value("Coleman"))
+                .andExpect(jsonPath("$.nextCursor").value(nextCursor));
+    }
+
+    @Test
+    void shouldGetLastOwnersSliceWithoutNextCursor() throws Exception {
+        given(ownerRepository.findIdsAfterLastName(eq("Coleman"), eq(2), any(Pageable.class)))
+                .willReturn(List.of(3));
+        given(ownerRepository.findAllWithPetsByIdIn(eq(List.of(3)), any(Sort.class)))
+                .willReturn(List.of(owner(3, "Davis")));
+
+        String cursor = new OwnerCursor(OwnerCursor.Sort.LAST_NAME, "Coleman", 2).encode();
+        mockMvc.perform(get("/owners?size=2&cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.owners[0].lastName").value("Davis"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldGetOwnersSliceMatchingName() throws Exception {
+        given(ownerRepository.findIdsByNameAfterLastName(eq("%dav%"), eq(""), eq(0), any(Pageable.class)))
+                .willReturn(List.of(2, 4));
+        given(ownerRepository.findAllWithPetsByIdIn(eq(List.of(2, 4)), any(Sort.class)))
+                .willReturn(List.of(owner(2, "Davis"), owner(4, "Davis")));
+
+        mockMvc.perform(get("/owners?size=2&sort=lastName&name=Dav"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.owners.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() throws Exception {
+        mockMvc.perform(get("/owners?size=2&cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Owner owner(int id, String lastName) throws Exception {
+        Owner owner = new Owner();
+        java.lang.reflect.Field idField = Owner.class.getDeclaredField("id");
+        idField.setAccessible(true);
+        idField.set(owner, id);
+        owner.setLastName(lastName);
+        return owner;
+    }
 }
@@ -0,0 +1,109 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.config.CacheConfig;
+import org.springframework.samples.petclinic.customers.model.Owner;
+import org.springframework.samples.petclinic.customers.model.OwnerRepository;
+import org.springframework.samples.petclinic.customers.model.Pet;
+import org.springframework.samples.petclinic.customers.model.PetRepository;
+import org.springframework.samples.petclinic.customers.model.PetType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.AopTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks that creating and updating pets find the pet types in the caches loaded by {@link CacheConfig},
+ * the repository behind the caching proxy standing for the database.
+ */
+@SpringJUnitConfig
+class PetTypeCacheTest {
+
+    @Autowired
+    CacheConfig cacheConfig;
+
+    @Autowired
+    PetRepository petRepository;
+
+    PetRepository database;
+
+    final OwnerRepository ownerRepository = mock(OwnerRepository.class);
+
+    @BeforeEach
+    void loadPetTypes() {
+        database = AopTestUtils.getUltimateTargetObject(petRepository);
+        given(database.findPetTypes()).willReturn(List.of(petType(1, "cat"), petType(2, "dog")));
+        cacheConfig.reloadPetTypes();
+        clearInvocations(database);
+    }
+
+    @Test
+    void shouldCreateAndUpdatePetsWithoutQueryingPetTypes() {
+        Pet existing = new Pet();
+        existing.setId(7);
+        given(ownerRepository.findById(1)).willReturn(Optional.of(new Owner()));
+        given(database.findById(7)).willReturn(Optional.of(existing));
+        given(database.save(any(Pet.class))).willAnswer(invocation -> invocation.getArgument(0));
+        PetResource petResource = new PetResource(petRepository, ownerRepository);
+
+        Pet created = petResource.processCreationForm(new PetRequest(0, null, "Leo", 1), 1);
+        petResource.processUpdateForm(new PetRequest(7, null, "Basil", 2));
+
+        assertThat(created.getType().getName()).isEqualTo("cat");
+        assertThat(existing.getType().getName()).isEqualTo("dog");
+        assertThat(petResource.getPetTypes()).hasSize(2);
+        verify(database, never()).findPetTypeById(anyInt());
+        verify(database, never()).findPetTypes();
+    }
+
+    @Test
+    void shouldReplaceThePetTypesOnReload() {
+        given(database.findPetTypes()).willReturn(List.of(petType(1, "kitten")));
+
+        cacheConfig.reloadPetTypes();
+
+        assertThat(petRepository.findPetTypes()).extracting(PetType::getName).containsExactly("kitten");
+        assertThat(petRepository.findPetTypeById(1)).map(PetType::getName).contains("kitten");
+        // Type 2 is gone from the database and from the cache
+        assertThat(petRepository.findPetTypeById(2)).isEmpty();
+    }
+
+    private static PetType petType(int id, String name) {
+        PetType petType = new PetType();
+        petType.setId(id);
+        petType.setName(name);
+        return petType;
+    }
+
+    @Configuration
+    @Import(CacheConfig.class)
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(PetRepository.PET_TYPES_CACHE, PetRepository.PET_TYPES_BY_ID_CACHE);
+        }
+
+        @Bean
+        PetRepository petRepository() {
+            return mock(PetRepository.class);
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package org.springframework.samples.petclinic.genai;
 
+import java.io.IOException;
+
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Scope;
+import org.springframework.samples.petclinic.genai.vectorstore.MappedVectorStore;
+import org.springframework.samples.petclinic.genai.vectorstore.VectorStoreProperties;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.LoopResources;
+
 /**
  * A Configuration class for beans used by the Chat Client.
  *
@@ -18,19 +29,73 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class AIBeanConfiguration {
 
+	/**
+	 * Chats running at the same time; the gateway admits fewer than that to the genai-service.
+	 */
+	private static final int CHAT_THREADS = 20;
+
+	/**
+	 * Chats waiting for a thread: a burst of them queues up rather than being rejected.
+	 */
+	private static final int QUEUED_CHATS = 1000;
+
+	@Bean
+	public ChatMemory chatMemory(ChatMemoryProperties properties) {
+		return new BoundedChatMemory(properties);
+	}
+
 	@Bean
-	public ChatMemory chatMemory() {
-		return new InMemoryChatMemory();
+	MappedVectorStore vectorStore(VectorStoreProperties properties, EmbeddingModel embeddingModel,
+			ObjectMapper objectMapper) throws IOException {
+		return new MappedVectorStore(properties, embeddingModel, objectMapper);
 	}
 
+	/**
+	 * Builder picked by the Spring AI auto-configuration for the streaming calls to the AI provider,
+	 * which must not go through the load balancer. The functions the LLM invokes run as its
+	 * streamed answer is read, and wait for their result: the answer is read on the chat threads
+	 * rather than on the event loop it arrives on. Builders are mutable: like the one of Spring Boot,
+	 * each injection point gets its own.
+	 */
 	@Bean
-	VectorStore vectorStore(EmbeddingModel embeddingModel) {
-		return new SimpleVectorStore(embeddingModel);
+	@Primary
+	@Scope("prototype")
+	public WebClient.Builder webClientBuilder(ObjectProvider<WebClientCustomizer> customizers,
+			Scheduler aiChatScheduler) {
+		WebClient.Builder builder = WebClient.builder()
+			.filter((request, next) -> next.exchange(request)
+				.map(response -> response.mutate().body(body -> body.publishOn(aiChatScheduler)).build()));
+		customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+		return builder;
 	}
-	
+
+    /**
+     * Singleton, so that the load balancer filter is added once; the beans using it clone it before
+     * adding their own settings.
+     */
     @Bean
     @LoadBalanced
     public WebClient.Builder loadBalancedWebClientBuilder() {
         return WebClient.builder();
     }
+
+	/**
+	 * Threads the chats and the functions the LLM invokes run on, see {@link AIToolExecutor}
+	 */
+	@Bean(destroyMethod = "dispose")
+	Scheduler aiChatScheduler() {
+		return newChatScheduler();
+	}
+
+	static Scheduler newChatScheduler() {
+		return Schedulers.newBoundedElastic(CHAT_THREADS, QUEUED_CHATS, "ai-chat");
+	}
+
+	/**
+	 * Event loops reserved to the calls made by the AI functions, see {@link AIToolExecutor}
+	 */
+	@Bean(destroyMethod = "dispose")
+	LoopResources aiToolsLoopResources() {
+		return LoopResources.create("ai-tools", 2, true);
+	}
 }
@@ -1,77 +1,161 @@
 package org.springframework.samples.petclinic.genai;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.samples.petclinic.genai.dto.OwnerDetails;
+import org.springframework.samples.petclinic.genai.dto.OwnersSlice;
 import org.springframework.samples.petclinic.genai.dto.PetDetails;
+import org.springframework.samples.petclinic.genai.dto.Specialty;
+import org.springframework.samples.petclinic.genai.dto.Vet;
+import org.springframework.samples.petclinic.genai.vectorstore.MappedVectorStore;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.LoopResources;
+
 /**
  * Functions that are invoked by the LLM will use this bean to query the system of record
  * for information such as listing owners and vets, or adding pets to an owner.
+ * The calls to the other services are reactive and run on the {@code ai-tools} event loops;
+ * {@link AIToolExecutor} awaits them on behalf of the functions.
  *
  * @author Oded Shopen
  */
 @Service
 public class AIDataProvider {
 
-	private final VectorStore vectorStore;
+	/**
+	 * Owners handed to the LLM at once: each page ends up in its prompt.
+	 */
+	private static final int OWNERS_PAGE_SIZE = 50;
+
+	private static final int MAX_VETS = 50;
+
+	/**
+	 * Below it a vet is unrelated to the one asked for: better no answer, that the LLM reports,
+	 * than the vets of other specialties.
+	 */
+	static final double SIMILAR_VETS_THRESHOLD = 0.8;
+
+	private final MappedVectorStore vectorStore;
+
+	private final ObjectMapper objectMapper;
     private final String ownersHostname = "http://customers-service/";
 
     private final WebClient webClient;
 
 
-	public AIDataProvider(WebClient.Builder webClientBuilder, VectorStore vectorStore) {
-		this.webClient = webClientBuilder.build();
+	public AIDataProvider(@LoadBalanced WebClient.Builder webClientBuilder, MappedVectorStore vectorStore,
+			ObjectMapper objectMapper, LoopResources aiToolsLoopResources) {
+		this.webClient = webClientBuilder.clone()
+			.clientConnector(new ReactorClientHttpConnector(HttpClient.create().runOn(aiToolsLoopResources)))
+			.build();
 		this.vectorStore = vectorStore;
+		this.objectMapper = objectMapper;
 	}
 
-	public OwnersResponse getAllOwners() {
-		return new OwnersResponse(webClient
+	/**
+	 * One keyset page of the owners, sorted by last name, optionally only those whose first or last
+	 * name contains {@code name}. Neither the customers-service nor this service ever holds the whole
+	 * owners table: the LLM asks for the next page with the {@code nextCursor} of the previous one.
+	 */
+	public Mono<OwnersResponse> getOwners(String name, String cursor) {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("size", OWNERS_PAGE_SIZE);
+		String uri = ownersHostname + "owners?size={size}&sort=lastName";
+		if (StringUtils.hasText(name)) {
+			uri += "&name={name}";
+			variables.put("name", name);
+		}
+		if (StringUtils.hasText(cursor)) {
+			uri += "&cursor={cursor}";
+			variables.put("cursor", cursor);
+		}
+		return webClient
 	            .get()
-	            .uri(ownersHostname + "owners")
+	            .uri(uri, variables)
 	            .retrieve()
-	            .bodyToMono(new ParameterizedTypeReference<List<OwnerDetails>>() {})
-	            .block());
+	            .bodyToMono(OwnersSlice.class)
+	            .map(slice -> new OwnersResponse(slice.owners(), slice.nextCursor(), slice.nextCursor() != null));
 	}
 
 	public VetResponse getVets(VetRequest request) throws JsonProcessingException {
-		ObjectMapper objectMapper = new ObjectMapper();
-		String vetAsJson = objectMapper.writeValueAsString(request.vet());
-
-		SearchRequest sr = SearchRequest.from(SearchRequest.defaults()).withQuery(vetAsJson).withTopK(20);
-		if (request.vet() == null) {
-			// Provide a limit of 50 results when zero parameters are sent
-			sr = sr.withTopK(50);
+		// The id, names and specialties sent are matched exactly against the metadata of the vets,
+		// without a similarity search: nothing has to be embedded. No criteria lists all the vets.
+		List<Document> matches = this.vectorStore.find(vetFilter(request.vet()), MAX_VETS);
+		if (matches.isEmpty() && request.vet() != null) {
+			// Nothing matched exactly, a misspelled specialty for instance: search by similarity
+			String vetAsJson = objectMapper.writeValueAsString(request.vet());
+			SearchRequest sr = SearchRequest.from(SearchRequest.defaults())
+				.withQuery(vetAsJson)
+				.withTopK(20)
+				.withSimilarityThreshold(SIMILAR_VETS_THRESHOLD);
+			matches = this.vectorStore.similaritySearch(sr);
 		}
-
-		List<Document> topMatches = this.vectorStore.similaritySearch(sr);
-		List<String> results = topMatches.stream().map(Document::getContent).toList();
+		List<String> results = matches.stream().map(Document::getContent).toList();
 		return new VetResponse(results);
 	}
 
-	public AddedPetResponse addPetToOwner(AddPetRequest request) {
-		return new AddedPetResponse(webClient
+	/**
+	 * Filter on the metadata stored by {@link VetsSynchronizer} matching the vets with every
+	 * criterion set in {@code vet}, {@code null} when none is.
+	 */
+	static Filter.Expression vetFilter(Vet vet) {
+		if (vet == null) {
+			return null;
+		}
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		List<FilterExpressionBuilder.Op> criteria = new ArrayList<>();
+		if (vet.id() != null) {
+			criteria.add(b.eq(VetsSynchronizer.VET_ID, vet.id()));
+		}
+		if (StringUtils.hasText(vet.firstName())) {
+			criteria.add(b.eq(VetsSynchronizer.FIRST_NAME, VetsSynchronizer.lowerCase(vet.firstName())));
+		}
+		if (StringUtils.hasText(vet.lastName())) {
+			criteria.add(b.eq(VetsSynchronizer.LAST_NAME, VetsSynchronizer.lowerCase(vet.lastName())));
+		}
+		if (vet.specialties() != null) {
+			for (Specialty specialty : vet.specialties()) {
+				if (specialty != null && StringUtils.hasText(specialty.name())) {
+					criteria.add(b.eq(VetsSynchronizer.SPECIALTIES, VetsSynchronizer.lowerCase(specialty.name())));
+				}
+			}
+		}
+		return criteria.stream().reduce(b::and).map(FilterExpressionBuilder.Op::build).orElse(null);
+	}
+
+	public Mono<AddedPetResponse> addPetToOwner(AddPetRequest request) {
+		return webClient
 	            .post()
 	            .uri(ownersHostname + "owners/"+request.ownerId()+"/pets")
 	            .bodyValue(request.pet())
-	            .retrieve().bodyToMono(PetDetails.class).block());
+	            .retrieve().bodyToMono(PetDetails.class)
+	            .map(AddedPetResponse::new);
 	}
 
-	public OwnerResponse addOwnerToPetclinic(OwnerRequest ownerRequest) {
-		return new OwnerResponse(webClient
+	public Mono<OwnerResponse> addOwnerToPetclinic(OwnerRequest ownerRequest) {
+		return webClient
 	            .post()
 	            .uri(ownersHostname + "owners")
 	            .bodyValue(ownerRequest)
-	            .retrieve().bodyToMono(OwnerDetails.class).block());
+	            .retrieve().bodyToMono(OwnerDetails.class)
+	            .map(OwnerResponse::new);
 	}
 
 }
@@ -13,10 +13,12 @@ import org.springframework.samples.petclinic.genai.dto.PetDetails;
 import org.springframework.samples.petclinic.genai.dto.PetRequest;
 import org.springframework.samples.petclinic.genai.dto.Vet;
 
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
+import reactor.core.publisher.Mono;
 
 /**
  * This class defines the @Bean functions that the LLM provider will invoke when it
@@ -33,22 +35,26 @@ class AIFunctionConfiguration {
 
 	// The @Description annotation helps the model understand when to call the function
 	@Bean
-	@Description("List the owners that the pet clinic has")
-	public Function<OwnerRequest, OwnersResponse> listOwners(AIDataProvider petclinicAiProvider) {
-		return request -> petclinicAiProvider.getAllOwners();
+	@Description("List the owners that the pet clinic has, sorted by last name, one page at a time. "
+			+ "Filter by name to find given owners. When the answer is truncated, "
+			+ "pass its nextCursor, with the same name, to get the next page")
+	public Function<OwnersRequest, OwnersResponse> listOwners(AIDataProvider petclinicAiProvider, AIToolExecutor tools) {
+		return request -> tools.call("listOwners", () -> request == null ? petclinicAiProvider.getOwners(null, null)
+				: petclinicAiProvider.getOwners(request.name(), request.cursor()));
 	}
 
 	@Bean
 	@Description("Add a new pet owner to the pet clinic. " + "The Owner must include a first name and a last name "
 			+ "as two separate words, " + "plus an address and a 10-digit phone number")
-	public Function<OwnerRequest, OwnerResponse> addOwnerToPetclinic(AIDataProvider petclinicAiDataProvider) {
-		return petclinicAiDataProvider::addOwnerToPetclinic;
+	public Function<OwnerRequest, OwnerResponse> addOwnerToPetclinic(AIDataProvider petclinicAiDataProvider,
+			AIToolExecutor tools) {
+		return request -> tools.callMutating("addOwnerToPetclinic", () -> petclinicAiDataProvider.addOwnerToPetclinic(request));
 	}
 
 	@Bean
 	@Description("List the veterinarians that the pet clinic has")
-	public Function<VetRequest, VetResponse> listVets(AIDataProvider petclinicAiProvider) {
-		return request -> {
+	public Function<VetRequest, VetResponse> listVets(AIDataProvider petclinicAiProvider, AIToolExecutor tools) {
+		return request -> tools.call("listVets", () -> Mono.fromCallable(() -> {
 			try {
 				return petclinicAiProvider.getVets(request);
 			}
@@ -56,15 +62,16 @@ class AIFunctionConfiguration {
                 LOG.error("Error processing JSON in the listVets function", e);
 				return null;
 			}
-		};
+		}));
 	}
 
 	@Bean
 	@Description("Add a pet with the specified petTypeId, " + "to an owner identified by the ownerId. "
 			+ "The allowed Pet types IDs are only: " + "1 - cat" + "2 - dog" + "3 - lizard" + "4 - snake" + "5 - bird"
 			+ "6 - hamster")
-	public Function<AddPetRequest, AddedPetResponse> addPetToOwner(AIDataProvider petclinicAiProvider) {
-		return petclinicAiProvider::addPetToOwner;
+	public Function<AddPetRequest, AddedPetResponse> addPetToOwner(AIDataProvider petclinicAiProvider,
+			AIToolExecutor tools) {
+		return request -> tools.callMutating("addPetToOwner", () -> petclinicAiProvider.addPetToOwner(request));
 	}
 
 }
@@ -72,7 +79,14 @@ class AIFunctionConfiguration {
 record AddPetRequest(PetRequest pet, Integer ownerId) {
 }
 
-record OwnersResponse(List<OwnerDetails> owners) {
+record OwnersRequest(
+		@JsonPropertyDescription("Part of the first or last name of the owners to list, any case") String name,
+		@JsonPropertyDescription("nextCursor of the previous page, none for the first page") String cursor) {
+}
+
+record OwnersResponse(List<OwnerDetails> owners,
+		@JsonPropertyDescription("Cursor of the next page, null on the last page") String nextCursor,
+		@JsonPropertyDescription("Whether more owners follow this page") boolean truncated) {
 }
 
 record OwnerResponse(OwnerDetails owner) {
@@ -0,0 +1,92 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs the calls made by the functions the LLM invokes. Spring AI expects a function to return
+ * its result, so the reactive call is awaited. It is awaited on the bounded {@code ai-chat}
+ * threads the chats run on, streamed ones included (see {@link AIBeanConfiguration}), while the
+ * call itself runs on the dedicated {@code ai-tools} event loops. Should a function ever be
+ * invoked on an event loop, {@code block()} fails it at once rather than stall the loop.
+ * <p>
+ * Every call is bounded by a timeout and timed as {@code petclinic.genai.tool.calls}, tagged with
+ * the function name and its outcome.
+ */
+@Component
+public class AIToolExecutor {
+
+	static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+	private final MeterRegistry meterRegistry;
+
+	private final AtomicLong calls = new AtomicLong();
+
+	private final AtomicLong mutations = new AtomicLong();
+
+	public AIToolExecutor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Like {@link #call(String, Supplier)}, for a function that modifies the data of the clinic.
+	 */
+	public <T> T callMutating(String function, Supplier<Mono<T>> call) {
+		try {
+			return call(function, call);
+		}
+		finally {
+			mutations.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Number of calls made so far to the functions modifying the data, so that the answers
+	 * computed before one of them can be told apart.
+	 */
+	public long mutations() {
+		return mutations.get();
+	}
+
+	/**
+	 * Number of calls made so far to any function, so that the answers computed from the data of
+	 * the clinic can be told apart.
+	 */
+	public long calls() {
+		return calls.get();
+	}
+
+	public <T> T call(String function, Supplier<Mono<T>> call) {
+		calls.incrementAndGet();
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String outcome = "error";
+		try {
+			T result = Mono.defer(call).timeout(TIMEOUT).block();
+			outcome = "success";
+			return result;
+		}
+		catch (RuntimeException e) {
+			Throwable cause = Exceptions.unwrap(e);
+			if (cause instanceof TimeoutException) {
+				outcome = "timeout";
+			}
+			throw new IllegalStateException("The " + function + " function failed", cause);
+		}
+		finally {
+			sample.stop(Timer.builder("petclinic.genai.tool.calls")
+				.description("Latency of the functions invoked by the LLM")
+				.tag("function", function)
+				.tag("outcome", outcome)
+				.register(meterRegistry));
+		}
+	}
+}
@@ -0,0 +1,344 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * {@link ChatMemory} holding a bounded number of conversations, each limited to a token budget
+ * rather than to a number of messages: the oldest messages are dropped once the conversation
+ * exceeds {@link ChatMemoryProperties#maxTokens()}. Least recently used conversations are evicted
+ * beyond {@link ChatMemoryProperties#maxConversations()}, and idle ones after
+ * {@link ChatMemoryProperties#timeToLive()}; see {@link ChatMemoryProperties} for the file tier.
+ * <p>
+ * An evicted conversation is written to its file by a thread of its own, not by the request that
+ * made room for another one. Until written, it is still handed back from memory.
+ */
+public class BoundedChatMemory implements ChatMemory, AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BoundedChatMemory.class);
+
+	/**
+	 * Conversation ids are used as file names in the spill directory.
+	 */
+	static final Pattern CONVERSATION_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+	private final Cache<String, Conversation> conversations;
+
+	private final int maxTokens;
+
+	private final SpillFiles spillFiles;
+
+	/**
+	 * Evicted conversations not yet written to their file.
+	 */
+	private final Map<String, List<Message>> spilling = new ConcurrentHashMap<>();
+
+	/**
+	 * Held while a conversation moves between {@link #spilling} and its file.
+	 */
+	private final Lock spillLock = new ReentrantLock();
+
+	private final ExecutorService spillExecutor;
+
+	public BoundedChatMemory(ChatMemoryProperties properties) {
+		this.maxTokens = properties.maxTokens();
+		this.spillFiles = properties.spillDirectory() == null ? null
+				: new SpillFiles(properties.spillDirectory(), properties.timeToLive());
+		this.spillExecutor = spillFiles == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "chat-memory-spill");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.conversations = Caffeine.newBuilder()
+			.maximumSize(properties.maxConversations())
+			.expireAfterAccess(properties.timeToLive())
+			.<String, Conversation>evictionListener((conversationId, conversation, cause) -> {
+				if (cause == RemovalCause.SIZE && spillFiles != null) {
+					List<Message> messages = conversation.messages(Integer.MAX_VALUE);
+					spilling.put(conversationId, messages);
+					spillExecutor.execute(() -> spill(conversationId, messages));
+				}
+			})
+			.build();
+	}
+
+	@Override
+	public void add(String conversationId, List<Message> messages) {
+		conversation(conversationId).add(messages, maxTokens);
+	}
+
+	@Override
+	public List<Message> get(String conversationId, int lastN) {
+		return conversation(conversationId).messages(lastN);
+	}
+
+	@Override
+	public void clear(String conversationId) {
+		conversations.invalidate(conversationId);
+		if (spillFiles != null) {
+			spillLock.lock();
+			try {
+				spilling.remove(conversationId);
+				spillFiles.delete(conversationId);
+			}
+			finally {
+				spillLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes the conversations evicted so far to their files.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		if (spillExecutor != null) {
+			spillExecutor.shutdown();
+			spillExecutor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	long size() {
+		conversations.cleanUp();
+		return conversations.estimatedSize();
+	}
+
+	private Conversation conversation(String conversationId) {
+		return conversations.get(conversationId, id -> {
+			Conversation conversation = new Conversation();
+			if (spillFiles != null) {
+				conversation.add(unspill(id), maxTokens);
+			}
+			return conversation;
+		});
+	}
+
+	private void spill(String conversationId, List<Message> messages) {
+		spillLock.lock();
+		try {
+			// Skipped when the conversation came back, or was evicted again, in the meantime
+			if (spilling.remove(conversationId, messages)) {
+				spillFiles.write(conversationId, messages);
+			}
+		}
+		finally {
+			spillLock.unlock();
+		}
+	}
+
+	private List<Message> unspill(String conversationId) {
+		spillLock.lock();
+		try {
+			List<Message> messages = spilling.remove(conversationId);
+			return messages != null ? messages : spillFiles.read(conversationId);
+		}
+		finally {
+			spillLock.unlock();
+		}
+	}
+
+	static int tokens(Message message) {
+		// Roughly 4 characters per token for English text
+		String content = message.getContent();
+		return content == null ? 0 : (content.length() + 3) / 4;
+	}
+
+	private static final class Conversation {
+
+		private final Deque<Message> messages = new ArrayDeque<>();
+
+		private int tokens;
+
+		synchronized void add(List<Message> added, int maxTokens) {
+			for (Message message : added) {
+				messages.addLast(message);
+				tokens += tokens(message);
+			}
+			// Always keep the last message, even when it exceeds the budget on its own
+			while (tokens > maxTokens && messages.size() > 1) {
+				tokens -= tokens(messages.removeFirst());
+			}
+		}
+
+		synchronized List<Message> messages(int lastN) {
+			List<Message> all = new ArrayList<>(messages);
+			return lastN >= all.size() ? all : all.subList(all.size() - lastN, all.size());
+		}
+	}
+
+	/**
+	 * One file per conversation evicted from the heap. A file is deleted when read back, and files
+	 * older than the time to live are swept at most once a minute.
+	 */
+	private static final class SpillFiles {
+
+		private static final long SWEEP_INTERVAL = Duration.ofMinutes(1).toNanos();
+
+		private final Path directory;
+
+		private final Duration timeToLive;
+
+		private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+		SpillFiles(Path directory, Duration timeToLive) {
+			this.directory = directory;
+			this.timeToLive = timeToLive;
+			try {
+				Files.createDirectories(directory);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException("Cannot create the chat memory spill directory " + directory, e);
+			}
+		}
+
+		void write(String conversationId, List<Message> messages) {
+			if (!CONVERSATION_ID.matcher(conversationId).matches()) {
+				return;
+			}
+			Path file = directory.resolve(conversationId);
+			Path temp = directory.resolve(conversationId + ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp);
+					DataOutputStream data = new DataOutputStream(out)) {
+				for (Message message : messages) {
+					if (message.getMessageType() == MessageType.TOOL || message.getContent() == null) {
+						continue;
+					}
+					byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+					data.writeByte(message.getMessageType().ordinal());
+					data.writeInt(content.length);
+					data.write(content);
+				}
+			}
+			catch (IOException e) {
+				LOG.warn("Could not spill chat conversation {}", conversationId, e);
+				return;
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (IOException e) {
+				LOG.warn("Could not spill chat conversation {}", conversationId, e);
+			}
+			sweepIfDue();
+		}
+
+		List<Message> read(String conversationId) {
+			if (!CONVERSATION_ID.matcher(conversationId).matches()) {
+				return List.of();
+			}
+			Path file = directory.resolve(conversationId);
+			List<Message> messages = new ArrayList<>();
+			try {
+				if (isExpired(file)) {
+					Files.deleteIfExists(file);
+					return List.of();
+				}
+				try (InputStream in = Files.newInputStream(file); DataInputStream data = new DataInputStream(in)) {
+					while (true) {
+						MessageType type;
+						try {
+							type = MessageType.values()[data.readByte()];
+						}
+						catch (EOFException e) {
+							break;
+						}
+						byte[] content = new byte[data.readInt()];
+						data.readFully(content);
+						messages.add(message(type, new String(content, StandardCharsets.UTF_8)));
+					}
+				}
+				Files.deleteIfExists(file);
+			}
+			catch (NoSuchFileException e) {
+				return List.of();
+			}
+			catch (IOException e) {
+				LOG.warn("Could not read spilled chat conversation {}", conversationId, e);
+				return List.of();
+			}
+			return messages;
+		}
+
+		void delete(String conversationId) {
+			if (!CONVERSATION_ID.matcher(conversationId).matches()) {
+				return;
+			}
+			try {
+				Files.deleteIfExists(directory.resolve(conversationId));
+			}
+			catch (IOException e) {
+				LOG.warn("Could not delete spilled chat conversation {}", conversationId, e);
+			}
+		}
+
+		private boolean isExpired(Path file) throws IOException {
+			Instant modified = Files.getLastModifiedTime(file).toInstant();
+			return modified.plus(timeToLive).isBefore(Instant.now());
+		}
+
+		private void sweepIfDue() {
+			long last = lastSweep.get();
+			long now = System.nanoTime();
+			if (now - last < SWEEP_INTERVAL || !lastSweep.compareAndSet(last, now)) {
+				return;
+			}
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					if (isExpired(file)) {
+						Files.deleteIfExists(file);
+					}
+				}
+			}
+			catch (IOException e) {
+				LOG.warn("Could not sweep the chat memory spill directory {}", directory, e);
+			}
+		}
+
+		private static Message message(MessageType type, String content) {
+			return switch (type) {
+				case USER -> new UserMessage(content);
+				case ASSISTANT -> new AssistantMessage(content);
+				default -> new SystemMessage(content);
+			};
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Bounds of the {@link BoundedChatMemory}: at most {@code maxConversations} conversations are kept
+ * on the heap, each one trimmed to its last {@code maxTokens} tokens, and a conversation idle for
+ * {@code timeToLive} is forgotten. The heap used is thus about
+ * {@code maxConversations * maxTokens * 4} characters.
+ * <p>
+ * With a {@code spillDirectory}, conversations evicted from the heap for lack of room are written
+ * there and read back when the user comes back, so that many more conversations than
+ * {@code maxConversations} can be live at the same time.
+ */
+@ConfigurationProperties(prefix = "genai.chat-memory")
+public record ChatMemoryProperties(
+		@DefaultValue("1000") int maxConversations,
+		@DefaultValue("30m") Duration timeToLive,
+		@DefaultValue("2000") int maxTokens,
+		Path spillDirectory) {
+}
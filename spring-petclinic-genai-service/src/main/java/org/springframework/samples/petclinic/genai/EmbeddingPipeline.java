@@ -0,0 +1,148 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.reactor.ratelimiter.operator.RateLimiterOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Computes the embeddings of the documents ingested into the vector store. The documents are
+ * split into batches of {@link EmbeddingPipelineProperties#batchSize()}, sent to the
+ * {@link EmbeddingModel} by at most {@link EmbeddingPipelineProperties#concurrency()} requests at
+ * a time and no more than {@link EmbeddingPipelineProperties#requestsPerSecond()} per second. A
+ * request failing with an error the provider may recover from (a {@link TransientAiException}, an
+ * I/O error) is retried with an exponential backoff; the rate limit applies to the retries too.
+ * <p>
+ * Every batch is handed over as soon as it is embedded, so that a failing batch does not lose the
+ * ones done before it. Requests are timed as {@code petclinic.genai.embedding.requests}, and
+ * {@code petclinic.genai.embedding.documents} counts the documents embedded: its rate is the
+ * throughput, which each run also logs in documents per second.
+ */
+@Component
+public class EmbeddingPipeline {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EmbeddingPipeline.class);
+
+	private final EmbeddingModel embeddingModel;
+
+	private final EmbeddingPipelineProperties properties;
+
+	private final RateLimiter rateLimiter;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Counter documents;
+
+	private final Counter retries;
+
+	public EmbeddingPipeline(EmbeddingModel embeddingModel, EmbeddingPipelineProperties properties,
+			MeterRegistry meterRegistry) {
+		this.embeddingModel = embeddingModel;
+		this.properties = properties;
+		this.rateLimiter = properties.requestsPerSecond() > 0 ? RateLimiter.of("embedding",
+				RateLimiterConfig.custom()
+					.limitForPeriod(properties.requestsPerSecond())
+					.limitRefreshPeriod(Duration.ofSeconds(1))
+					// Waiting for a permit is the point: only give up on a stalled limiter
+					.timeoutDuration(Duration.ofMinutes(5))
+					.build())
+				: null;
+		this.meterRegistry = meterRegistry;
+		this.documents = Counter.builder("petclinic.genai.embedding.documents")
+			.description("Documents embedded for the vector store")
+			.register(meterRegistry);
+		this.retries = Counter.builder("petclinic.genai.embedding.retries")
+			.description("Embedding requests retried after a transient failure")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Embeds the documents, setting their embedding, and passes every batch to {@code sink} once
+	 * embedded, in completion order and never concurrently. Blocks until all are done.
+	 */
+	public Result embed(List<Document> documents, Consumer<List<Document>> sink) {
+		long start = System.nanoTime();
+		Flux.fromIterable(batches(documents))
+			.flatMap(this::embedBatch, Math.max(1, properties.concurrency()))
+			.doOnNext(sink)
+			.blockLast();
+		Result result = new Result(documents.size(), Duration.ofNanos(System.nanoTime() - start));
+		if (!documents.isEmpty()) {
+			LOG.info("Embedded {} documents in {} ms ({} documents/s)", result.documents(),
+					result.elapsed().toMillis(), String.format("%.1f", result.documentsPerSecond()));
+		}
+		return result;
+	}
+
+	private Mono<List<Document>> embedBatch(List<Document> batch) {
+		Mono<List<float[]>> request = Mono
+			.fromCallable(() -> embeddingModel.embed(batch.stream().map(Document::getContent).toList()))
+			.subscribeOn(Schedulers.boundedElastic());
+		Mono<List<float[]>> limited = rateLimiter == null ? request
+				: request.transformDeferred(RateLimiterOperator.of(rateLimiter));
+		return Mono.defer(() -> {
+			Timer.Sample sample = Timer.start(meterRegistry);
+			return limited
+				.retryWhen(Retry.backoff(properties.maxRetries(), properties.initialBackoff())
+					.filter(EmbeddingPipeline::isTransient)
+					.doBeforeRetry(signal -> retries.increment())
+					.onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+				.doOnEach(signal -> {
+					if (signal.isOnNext() || signal.isOnError()) {
+						sample.stop(Timer.builder("petclinic.genai.embedding.requests")
+							.description("Latency of the embedding of a batch, rate limiting and retries included")
+							.tag("outcome", signal.isOnNext() ? "success" : "error")
+							.register(meterRegistry));
+					}
+				});
+		}).map(vectors -> {
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).setEmbedding(vectors.get(i));
+			}
+			documents.increment(batch.size());
+			return batch;
+		});
+	}
+
+	private List<List<Document>> batches(List<Document> documents) {
+		int batchSize = Math.max(1, properties.batchSize());
+		List<List<Document>> batches = new ArrayList<>();
+		for (int from = 0; from < documents.size(); from += batchSize) {
+			batches.add(documents.subList(from, Math.min(from + batchSize, documents.size())));
+		}
+		return batches;
+	}
+
+	static boolean isTransient(Throwable error) {
+		return error instanceof TransientAiException || error instanceof ResourceAccessException;
+	}
+
+	/**
+	 * Outcome of a run of the pipeline.
+	 */
+	public record Result(int documents, Duration elapsed) {
+
+		public double documentsPerSecond() {
+			return elapsed.isZero() ? 0 : documents * 1e9 / elapsed.toNanos();
+		}
+	}
+}
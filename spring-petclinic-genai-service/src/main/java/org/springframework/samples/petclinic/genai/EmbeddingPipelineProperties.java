@@ -0,0 +1,21 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the {@link EmbeddingPipeline}: documents are embedded {@code batchSize} at a time,
+ * with at most {@code concurrency} batches in flight and {@code requestsPerSecond} requests sent
+ * per second (0 for no limit). A request failing transiently is retried up to {@code maxRetries}
+ * times, the first time after {@code initialBackoff}, then after exponentially longer delays.
+ */
+@ConfigurationProperties(prefix = "genai.embedding")
+public record EmbeddingPipelineProperties(
+		@DefaultValue("32") int batchSize,
+		@DefaultValue("4") int concurrency,
+		@DefaultValue("10") int requestsPerSecond,
+		@DefaultValue("3") int maxRetries,
+		@DefaultValue("500ms") Duration initialBackoff) {
+}
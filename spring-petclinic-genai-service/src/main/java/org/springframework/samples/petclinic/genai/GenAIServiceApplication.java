@@ -17,13 +17,19 @@ package org.springframework.samples.petclinic.genai;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.samples.petclinic.genai.vectorstore.VectorStoreProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @author Oded Shopen
  */
 @EnableDiscoveryClient
 @SpringBootApplication
+@EnableScheduling
+@EnableConfigurationProperties({ChatMemoryProperties.class, ResponseCacheProperties.class, VectorStoreProperties.class,
+		VetsSyncProperties.class, EmbeddingPipelineProperties.class})
 public class GenAIServiceApplication {
 
 	public static void main(String[] args) {
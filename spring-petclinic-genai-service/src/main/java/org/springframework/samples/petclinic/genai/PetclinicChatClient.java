@@ -1,5 +1,6 @@
 package org.springframework.samples.petclinic.genai;
 
+import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY;
 import static org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor.DEFAULT_CHAT_MEMORY_CONVERSATION_ID;
 
 import org.slf4j.Logger;
@@ -8,11 +9,17 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
 /**
  * This REST controller is being invoked by the in order to interact with the LLM
  *
@@ -30,7 +37,16 @@ public class PetclinicChatClient {
 	// checkout the interfaces in the core Spring AI package.
 	private final ChatClient chatClient;
 
-	public PetclinicChatClient(ChatClient.Builder builder, ChatMemory chatMemory) {
+	// Chat memory helps us keep context when using the chatbot. The history is bounded by the
+	// token budget of the BoundedChatMemory rather than by a number of messages.
+	private final MessageChatMemoryAdvisor chatMemoryAdvisor;
+
+	private final Scheduler aiChatScheduler;
+
+	public PetclinicChatClient(ChatClient.Builder builder, ChatMemory chatMemory, ResponseCacheAdvisor responseCacheAdvisor,
+			Scheduler aiChatScheduler) {
+		this.aiChatScheduler = aiChatScheduler;
+		this.chatMemoryAdvisor = new MessageChatMemoryAdvisor(chatMemory, DEFAULT_CHAT_MEMORY_CONVERSATION_ID, Integer.MAX_VALUE);
 		// @formatter:off
 		this.chatClient = builder
 				.defaultSystem("""
@@ -45,31 +61,77 @@ public class PetclinicChatClient {
                           For owners, pets or visits - provide the correct data.
                           """)
 				.defaultAdvisors(
-						// Chat memory helps us keep context when using the chatbot for up to 10 previous messages.
-						new MessageChatMemoryAdvisor(chatMemory, DEFAULT_CHAT_MEMORY_CONVERSATION_ID, 10), // CHAT MEMORY
+						// The chat memory advisor is added per request, see withMemory
+						// Questions already answered, outside of a conversation, skip the LLM
+						responseCacheAdvisor,
 						new SimpleLoggerAdvisor()
 						)
                 .defaultFunctions("listOwners", "addOwnerToPetclinic", "addPetToOwner", "listVets")
 				.build();
   }
 
+  private static final String UNAVAILABLE = "Chat is currently unavailable. Please try again later.";
+
+  /**
+   * Identifies the conversation, and thus the chat memory, of a browser session.
+   */
+  static final String CONVERSATION_ID_HEADER = "X-Conversation-Id";
+
   @PostMapping("/chatclient")
-  public String exchange(@RequestBody String query) {
-	  try {
-		  //All chatbot messages go through this endpoint
-		  //and are passed to the LLM
-		  return
+  public Mono<String> exchange(@RequestBody String query,
+		  @RequestHeader(name = CONVERSATION_ID_HEADER, required = false) String conversationId) {
+	  //All chatbot messages go through this endpoint
+	  //and are passed to the LLM.
+	  //The call blocks until the whole answer is generated: keep it on the chat threads
+	  return Mono.fromCallable(() ->
 		  this.chatClient
 		  .prompt()
 	      .user(
 	          u ->
 	              u.text(query)
 	              )
+	      .advisors(a -> withMemory(a, conversationId))
 	      .call()
-	      .content();
-	  } catch (Exception exception) {
-          LOG.error("Error processing chat message", exception);
- 	      return "Chat is currently unavailable. Please try again later.";
+	      .content())
+		  .subscribeOn(aiChatScheduler)
+		  .onErrorResume(exception -> {
+			  LOG.error("Error processing chat message", exception);
+			  return Mono.just(UNAVAILABLE);
+		  });
+  }
+
+  /**
+   * Streams the answer as server-sent events, one {@link ChatChunk} per token, as the LLM
+   * generates it. Tokens are wrapped in JSON because an SSE {@code data:} line would lose their
+   * leading space.
+   */
+  @PostMapping(value = "/chatclient/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ChatChunk> stream(@RequestBody String query,
+		  @RequestHeader(name = CONVERSATION_ID_HEADER, required = false) String conversationId) {
+	  return this.chatClient
+		  .prompt()
+		  .user(u -> u.text(query))
+		  .advisors(a -> withMemory(a, conversationId))
+		  .stream()
+		  .content()
+		  .map(ChatChunk::new)
+		  .onErrorResume(exception -> {
+			  LOG.error("Error streaming chat message", exception);
+			  return Flux.just(new ChatChunk(UNAVAILABLE));
+		  });
+  }
+
+  /**
+   * Only a request with a valid conversation id has a chat memory. One without is answered without
+   * history, and none is kept for it: nobody could continue that conversation, which would only
+   * push the live ones out of the memory.
+   */
+  private void withMemory(ChatClient.AdvisorSpec advisors, String conversationId) {
+	  if (conversationId != null && BoundedChatMemory.CONVERSATION_ID.matcher(conversationId).matches()) {
+		  advisors.advisors(chatMemoryAdvisor).param(CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId);
 	  }
   }
+
+  public record ChatChunk(String content) {
+  }
 }
@@ -0,0 +1,269 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Answers the questions already asked from a cache instead of the LLM. A question is looked up
+ * by the hash of its normalized text, then, failing that, by the similarity of its embedding
+ * with the cached questions.
+ * <p>
+ * Only questions asked without prior conversation are cached, as a follow-up question means
+ * nothing out of its conversation. The advisor therefore runs after the chat memory advisor,
+ * which adds that history to the request. Any call to a function modifying the data empties the
+ * cache, and an answer produced while such a call was made is not stored. An answer produced
+ * while any function was called, by this chat or another, is kept for the shorter
+ * {@link ResponseCacheProperties#dataTimeToLive() dataTimeToLive}, as the data it was built
+ * from may be changed in the UI.
+ * <p>
+ * The question embeddings come from the same {@link EmbeddingModel} as the vets vector store but
+ * are kept apart from it, so that they never show up in the vets search results; with a bounded
+ * number of entries, scanning them is cheap. Lookups are counted as
+ * {@code petclinic.genai.response.cache} tagged {@code result=exact|semantic|miss}, the cache
+ * itself is published as {@code cache.*} metrics tagged {@code cache=genai-responses}.
+ */
+@Component
+public class ResponseCacheAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResponseCacheAdvisor.class);
+
+	private final ResponseCacheProperties properties;
+
+	private final EmbeddingModel embeddingModel;
+
+	private final AIToolExecutor tools;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Scheduler aiChatScheduler;
+
+	private final Cache<String, CachedAnswer> answers;
+
+	private final AtomicLong seenMutations = new AtomicLong();
+
+	public ResponseCacheAdvisor(ResponseCacheProperties properties, EmbeddingModel embeddingModel, AIToolExecutor tools,
+			MeterRegistry meterRegistry, Scheduler aiChatScheduler) {
+		this.properties = properties;
+		this.embeddingModel = embeddingModel;
+		this.tools = tools;
+		this.meterRegistry = meterRegistry;
+		this.aiChatScheduler = aiChatScheduler;
+		this.answers = Caffeine.newBuilder()
+			.maximumSize(properties.maxEntries())
+			.expireAfter(new Expiry<String, CachedAnswer>() {
+				@Override
+				public long expireAfterCreate(String key, CachedAnswer answer, long currentTime) {
+					return answer.timeToLive().toNanos();
+				}
+
+				@Override
+				public long expireAfterUpdate(String key, CachedAnswer answer, long currentTime, long currentDuration) {
+					return answer.timeToLive().toNanos();
+				}
+
+				@Override
+				public long expireAfterRead(String key, CachedAnswer answer, long currentTime, long currentDuration) {
+					return currentDuration;
+				}
+			})
+			.recordStats()
+			.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, answers, "genai-responses");
+	}
+
+	@Override
+	public String getName() {
+		return ResponseCacheAdvisor.class.getSimpleName();
+	}
+
+	@Override
+	public int getOrder() {
+		return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+	}
+
+	@Override
+	public AdvisedResponse aroundCall(AdvisedRequest request, CallAroundAdvisorChain chain) {
+		if (!isCacheable(request)) {
+			return chain.nextAroundCall(request);
+		}
+		Lookup lookup = lookup(request.userText());
+		if (lookup.answer() != null) {
+			return response(lookup.answer(), request.adviseContext());
+		}
+		long mutations = tools.mutations();
+		long calls = tools.calls();
+		AdvisedResponse response = chain.nextAroundCall(request);
+		store(lookup, text(response), mutations, calls);
+		return response;
+	}
+
+	@Override
+	public Flux<AdvisedResponse> aroundStream(AdvisedRequest request, StreamAroundAdvisorChain chain) {
+		if (!isCacheable(request)) {
+			return chain.nextAroundStream(request);
+		}
+		return Flux.defer(() -> {
+			Lookup lookup = lookup(request.userText());
+			if (lookup.answer() != null) {
+				return Flux.just(response(lookup.answer(), request.adviseContext()));
+			}
+			long mutations = tools.mutations();
+			long calls = tools.calls();
+			StringBuilder answer = new StringBuilder();
+			return chain.nextAroundStream(request)
+				.doOnNext(response -> {
+					String text = text(response);
+					if (text != null) {
+						answer.append(text);
+					}
+				})
+				.doOnComplete(() -> store(lookup, answer.toString(), mutations, calls));
+		}).subscribeOn(aiChatScheduler); // the lookup may call the embedding model
+	}
+
+	private boolean isCacheable(AdvisedRequest request) {
+		return properties.enabled() && request.userText() != null && request.messages().isEmpty();
+	}
+
+	private Lookup lookup(String question) {
+		invalidateOnMutation();
+		String normalized = normalize(question);
+		String key = hash(normalized);
+		CachedAnswer exact = answers.getIfPresent(key);
+		if (exact != null) {
+			count("exact");
+			return new Lookup(key, null, exact.answer());
+		}
+		float[] embedding = properties.isSemantic() ? embed(normalized) : null;
+		if (embedding != null) {
+			CachedAnswer closest = null;
+			double bestSimilarity = properties.similarityThreshold();
+			for (CachedAnswer candidate : answers.asMap().values()) {
+				double similarity = cosineSimilarity(embedding, candidate.embedding());
+				if (similarity >= bestSimilarity) {
+					bestSimilarity = similarity;
+					closest = candidate;
+				}
+			}
+			if (closest != null) {
+				count("semantic");
+				return new Lookup(key, embedding, closest.answer());
+			}
+		}
+		count("miss");
+		return new Lookup(key, embedding, null);
+	}
+
+	private void store(Lookup lookup, String answer, long mutationsBefore, long callsBefore) {
+		// A function may have modified the data while the answer was produced
+		if (answer == null || answer.isBlank() || tools.mutations() != mutationsBefore) {
+			return;
+		}
+		Duration timeToLive = tools.calls() != callsBefore ? properties.dataTimeToLive() : properties.timeToLive();
+		answers.put(lookup.key(), new CachedAnswer(answer, lookup.embedding(), timeToLive));
+	}
+
+	private void invalidateOnMutation() {
+		long mutations = tools.mutations();
+		long seen = seenMutations.get();
+		if (mutations != seen && seenMutations.compareAndSet(seen, mutations)) {
+			answers.invalidateAll();
+		}
+	}
+
+	private float[] embed(String text) {
+		try {
+			return embeddingModel.embed(text);
+		}
+		catch (RuntimeException e) {
+			LOG.debug("Could not embed the question, only exact matches are looked up", e);
+			return null;
+		}
+	}
+
+	private void count(String result) {
+		meterRegistry.counter("petclinic.genai.response.cache", "result", result).increment();
+	}
+
+	static String normalize(String question) {
+		return question.strip()
+			.toLowerCase(Locale.ROOT)
+			.replaceAll("\\s+", " ")
+			.replaceAll("[\\s?!.]+$", "");
+	}
+
+	private static String hash(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static double cosineSimilarity(float[] a, float[] b) {
+		if (b == null || a.length != b.length) {
+			return 0;
+		}
+		double dot = 0;
+		double normA = 0;
+		double normB = 0;
+		for (int i = 0; i < a.length; i++) {
+			dot += a[i] * b[i];
+			normA += a[i] * a[i];
+			normB += b[i] * b[i];
+		}
+		return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+	}
+
+	private static String text(AdvisedResponse response) {
+		ChatResponse chatResponse = response.response();
+		if (chatResponse == null || chatResponse.getResult() == null || chatResponse.getResult().getOutput() == null) {
+			return null;
+		}
+		return chatResponse.getResult().getOutput().getContent();
+	}
+
+	private static AdvisedResponse response(String answer, Map<String, Object> adviseContext) {
+		return new AdvisedResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(answer)))),
+				adviseContext);
+	}
+
+	private record Lookup(String key, float[] embedding, String answer) {
+	}
+
+	private record CachedAnswer(String answer, float[] embedding, Duration timeToLive) {
+	}
+}
@@ -0,0 +1,30 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the {@link ResponseCacheAdvisor}: answers are kept for {@code timeToLive}, at most
+ * {@code maxEntries} of them. A question whose embedding has a cosine similarity of at least
+ * {@code similarityThreshold} with a cached one gets its answer; a threshold of 1 or more
+ * leaves only exact matches.
+ * <p>
+ * Only the changes made through the functions of the LLM empty the cache: an owner, pet or vet
+ * added or modified in the UI is not seen by an answer served from it. Answers for which a
+ * function read the data of the clinic are therefore only kept for {@code dataTimeToLive}, the
+ * longest they can be served stale; {@code timeToLive} applies to the others.
+ */
+@ConfigurationProperties(prefix = "genai.response-cache")
+public record ResponseCacheProperties(
+		@DefaultValue("true") boolean enabled,
+		@DefaultValue("1000") int maxEntries,
+		@DefaultValue("1h") Duration timeToLive,
+		@DefaultValue("1m") Duration dataTimeToLive,
+		@DefaultValue("0.95") double similarityThreshold) {
+
+	public boolean isSemantic() {
+		return similarityThreshold < 1;
+	}
+}
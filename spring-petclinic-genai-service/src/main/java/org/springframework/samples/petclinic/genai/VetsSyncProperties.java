@@ -0,0 +1,15 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the {@link VetsSynchronizer}: vets-service is polled every {@code interval}.
+ */
+@ConfigurationProperties(prefix = "genai.vets-sync")
+public record VetsSyncProperties(
+		@DefaultValue("true") boolean enabled,
+		@DefaultValue("5m") Duration interval) {
+}
@@ -0,0 +1,249 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.genai.dto.Specialty;
+import org.springframework.samples.petclinic.genai.dto.Vet;
+import org.springframework.samples.petclinic.genai.vectorstore.MappedVectorStore;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the vector store in step with vets-service. Every vet is one document, whose id is derived
+ * from the vet's and whose metadata holds a hash of its content: a synchronization only embeds the
+ * vets that are new or whose content changed, and deletes the documents of the vets that are gone,
+ * unless vets-service answers with no vet at all: that is taken for a fault of the service rather
+ * than for every vet having left, and the store is kept as it is. The metadata also holds the id,
+ * names and specialties of the vet, lower-cased, for the searches to filter on; a document whose
+ * metadata alone is outdated is stored again with its current embedding.
+ * <p>
+ * vets-service has no way to announce a change, so it is polled every
+ * {@link VetsSyncProperties#interval()}. The poll sends the ETag of the last list synchronized,
+ * and an unchanged list comes back as a bodyless 304.
+ * <p>
+ * The embeddings are computed by the {@link EmbeddingPipeline}, each batch being stored as soon as
+ * it is embedded. The number computed by a synchronization is recorded as
+ * {@code petclinic.genai.vets.sync.embeddings}.
+ */
+@Component
+public class VetsSynchronizer {
+
+	static final String CONTENT_HASH = "contentHash";
+
+	static final String VET_ID = "vetId";
+
+	static final String FIRST_NAME = "firstName";
+
+	static final String LAST_NAME = "lastName";
+
+	static final String SPECIALTIES = "specialties";
+
+	private static final Logger LOG = LoggerFactory.getLogger(VetsSynchronizer.class);
+
+	private static final ParameterizedTypeReference<List<Vet>> VETS = new ParameterizedTypeReference<>() {
+	};
+
+	private final MappedVectorStore vectorStore;
+
+	private final EmbeddingPipeline embeddingPipeline;
+
+	private final WebClient webClient;
+
+	private final VetsSyncProperties properties;
+
+	private final DistributionSummary embeddings;
+
+	private String etag;
+
+	public VetsSynchronizer(MappedVectorStore vectorStore, EmbeddingPipeline embeddingPipeline,
+			@LoadBalanced WebClient.Builder webClientBuilder, VetsSyncProperties properties, MeterRegistry meterRegistry) {
+		this.vectorStore = vectorStore;
+		this.embeddingPipeline = embeddingPipeline;
+		this.webClient = webClientBuilder.build();
+		this.properties = properties;
+		this.embeddings = DistributionSummary.builder("petclinic.genai.vets.sync.embeddings")
+			.description("Embeddings computed by a synchronization of the vets")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Synchronizes the vets, unless disabled. A failure is logged, the next poll trying again.
+	 */
+	@Scheduled(fixedDelayString = "${genai.vets-sync.interval:5m}", initialDelayString = "${genai.vets-sync.interval:5m}")
+	public void synchronizeQuietly() {
+		if (!properties.enabled()) {
+			return;
+		}
+		try {
+			synchronize();
+		}
+		catch (RuntimeException e) {
+			LOG.warn("Could not synchronize the vets with the vector store", e);
+		}
+	}
+
+	public synchronized void synchronize() {
+		FetchedVets fetched = webClient.get()
+			.uri("http://vets-service/vets")
+			.headers(headers -> {
+				if (etag != null) {
+					headers.setIfNoneMatch(etag);
+				}
+			})
+			.<FetchedVets>exchangeToMono(response -> {
+				if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					return Mono.empty();
+				}
+				if (response.statusCode().isError()) {
+					return response.createError();
+				}
+				String tag = response.headers().asHttpHeaders().getETag();
+				return response.bodyToMono(VETS).map(vets -> new FetchedVets(tag, vets));
+			})
+			.block();
+		if (fetched == null) {
+			LOG.debug("Vets unchanged since the last synchronization");
+			return;
+		}
+		if (synchronize(fetched.vets())) {
+			// Only remembered once synchronized, so that a failed or skipped synchronization is retried
+			this.etag = fetched.etag();
+		}
+	}
+
+	/**
+	 * Brings the store in line with the given vets, unless they are none while the store holds some.
+	 * @return whether the store was synchronized
+	 */
+	synchronized boolean synchronize(List<Vet> vets) {
+		if (vets.isEmpty()) {
+			int stored = vectorStore.ids().size();
+			if (stored > 0) {
+				LOG.warn("vets-service returned no vet, keeping the {} vets of the vector store", stored);
+				return false;
+			}
+		}
+		Map<String, Document> current = new LinkedHashMap<>();
+		for (Vet vet : vets) {
+			Document document = document(vet);
+			current.put(document.getId(), document);
+		}
+		List<String> removed = vectorStore.ids().stream().filter(id -> !current.containsKey(id)).toList();
+		List<Document> changed = new ArrayList<>();
+		List<Document> relabeled = new ArrayList<>();
+		for (Document document : current.values()) {
+			Optional<Document> stored = vectorStore.get(document.getId());
+			if (stored.isEmpty() || !Objects.equals(stored.get().getMetadata().get(CONTENT_HASH),
+					document.getMetadata().get(CONTENT_HASH))) {
+				changed.add(document);
+			}
+			else if (!stored.get().getMetadata().equals(document.getMetadata())) {
+				document.setEmbedding(stored.get().getEmbedding());
+				relabeled.add(document);
+			}
+		}
+
+		embeddingPipeline.embed(changed, vectorStore::add);
+		if (!relabeled.isEmpty()) {
+			vectorStore.add(relabeled);
+		}
+		if (!removed.isEmpty()) {
+			vectorStore.delete(removed);
+		}
+		embeddings.record(changed.size());
+		LOG.info("Vets synchronized: {} embedded, {} relabeled, {} deleted, {} unchanged", changed.size(),
+				relabeled.size(), removed.size(), current.size() - changed.size() - relabeled.size());
+		return true;
+	}
+
+	static Document document(Vet vet) {
+		String content = content(vet);
+		Map<String, Object> metadata = new HashMap<>();
+		metadata.put(VET_ID, vet.id());
+		putLowerCase(metadata, FIRST_NAME, vet.firstName());
+		putLowerCase(metadata, LAST_NAME, vet.lastName());
+		metadata.put(SPECIALTIES, vet.specialties() == null ? List.of()
+				: vet.specialties()
+					.stream()
+					.map(Specialty::name)
+					.filter(Objects::nonNull)
+					.map(VetsSynchronizer::lowerCase)
+					.sorted()
+					.toList());
+		metadata.put(CONTENT_HASH, hash(content));
+		return new Document("vet-" + vet.id(), content, metadata);
+	}
+
+	/**
+	 * The text embedded for a vet, in the shape the documents of {@code vectorstore.snapshot}
+	 * have. The specialties are sorted by name, as vets-service does, for the same vet to always
+	 * give the same text.
+	 */
+	static String content(Vet vet) {
+		List<Map<String, Object>> specialties = new ArrayList<>();
+		if (vet.specialties() != null) {
+			vet.specialties()
+				.stream()
+				.sorted(Comparator.comparing(Specialty::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)))
+				.forEach(specialty -> {
+					Map<String, Object> fields = new LinkedHashMap<>();
+					fields.put("id", specialty.id());
+					fields.put("name", specialty.name());
+					specialties.add(fields);
+				});
+		}
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("id", vet.id());
+		fields.put("firstName", vet.firstName());
+		fields.put("lastName", vet.lastName());
+		fields.put("specialties", specialties);
+		fields.put("nrOfSpecialties", specialties.size());
+		return fields.toString();
+	}
+
+	static String lowerCase(String text) {
+		return text.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static void putLowerCase(Map<String, Object> metadata, String key, String value) {
+		if (value != null) {
+			metadata.put(key, lowerCase(value));
+		}
+	}
+
+	private static String hash(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record FetchedVets(String etag, List<Vet> vets) {
+	}
+}
@@ -0,0 +1,174 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only log of the documents of a {@link MappedVectorStore}: an {@code add} record holds
+ * the slot of the document's vector, its id, content and metadata; a {@code delete} record the
+ * slot of a removed document. Replaying the log only reads the record headers, the content and
+ * metadata being read back, by offset, for the documents a search returns.
+ * <p>
+ * A record is appended after the vector it refers to has been written, so the log is what
+ * commits a document. A record truncated by a crash is dropped on replay.
+ */
+class DocumentLog implements AutoCloseable {
+
+	private static final byte ADD = 1;
+
+	private static final byte DELETE = 2;
+
+	private static final TypeReference<Map<String, Object>> METADATA = new TypeReference<>() {
+	};
+
+	private final FileChannel channel;
+
+	private final ObjectMapper objectMapper;
+
+	DocumentLog(Path file, ObjectMapper objectMapper) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.objectMapper = objectMapper;
+	}
+
+	interface Replay {
+
+		void added(int slot, String id, long offset);
+
+		void deleted(int slot);
+
+	}
+
+	void replay(Replay replay) throws IOException {
+		long position = 0;
+		long size = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(Byte.BYTES + Integer.BYTES);
+		try {
+			while (position < size) {
+				header.clear();
+				readFully(header, position);
+				byte op = header.get();
+				int slot = header.getInt();
+				if (op == DELETE) {
+					replay.deleted(slot);
+					position += header.capacity();
+					continue;
+				}
+				ByteBuffer idLength = ByteBuffer.allocate(Short.BYTES);
+				readFully(idLength, position + header.capacity());
+				ByteBuffer id = ByteBuffer.allocate(Short.toUnsignedInt(idLength.getShort()));
+				readFully(id, position + header.capacity() + Short.BYTES);
+				long bodyOffset = position + header.capacity() + Short.BYTES + id.capacity();
+				long bodyLength = Integer.BYTES + readInt(bodyOffset);
+				bodyLength += Integer.BYTES + readInt(bodyOffset + bodyLength);
+				if (bodyOffset + bodyLength > size) {
+					throw new EOFException();
+				}
+				replay.added(slot, new String(id.array(), StandardCharsets.UTF_8), bodyOffset);
+				position = bodyOffset + bodyLength;
+			}
+		}
+		catch (EOFException e) {
+			// Torn write at the end of the log
+			channel.truncate(position);
+		}
+	}
+
+	/**
+	 * Appends an {@code add} record and returns the offset to read the document back from.
+	 */
+	long add(int slot, String id, String content, Map<String, Object> metadata) throws IOException {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		if (idBytes.length > 0xFFFF) {
+			throw new IllegalArgumentException("Document id too long: " + id);
+		}
+		byte[] contentBytes = content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8);
+		byte[] metadataBytes = objectMapper.writeValueAsBytes(metadata == null ? Map.of() : metadata);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + idBytes.length + contentBytes.length + metadataBytes.length);
+		DataOutputStream record = new DataOutputStream(bytes);
+		record.writeByte(ADD);
+		record.writeInt(slot);
+		record.writeShort(idBytes.length);
+		record.write(idBytes);
+		record.writeInt(contentBytes.length);
+		record.write(contentBytes);
+		record.writeInt(metadataBytes.length);
+		record.write(metadataBytes);
+		long position = channel.size();
+		writeFully(ByteBuffer.wrap(bytes.toByteArray()), position);
+		return position + 1 + Integer.BYTES + Short.BYTES + idBytes.length;
+	}
+
+	void delete(int slot) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(Byte.BYTES + Integer.BYTES);
+		record.put(DELETE).putInt(slot).flip();
+		writeFully(record, channel.size());
+	}
+
+	/**
+	 * Content and metadata of the document whose {@code add} record body starts at {@code offset}.
+	 */
+	Entry read(long offset) throws IOException {
+		byte[] content = readBytes(offset);
+		byte[] metadata = readBytes(offset + Integer.BYTES + content.length);
+		return new Entry(new String(content, StandardCharsets.UTF_8), objectMapper.readValue(metadata, METADATA));
+	}
+
+	/**
+	 * Metadata of the document whose {@code add} record body starts at {@code offset}, its content
+	 * being skipped.
+	 */
+	Map<String, Object> readMetadata(long offset) throws IOException {
+		return objectMapper.readValue(readBytes(offset + Integer.BYTES + readInt(offset)), METADATA);
+	}
+
+	void force() throws IOException {
+		channel.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	record Entry(String content, Map<String, Object> metadata) {
+	}
+
+	private byte[] readBytes(long offset) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(readInt(offset));
+		readFully(bytes, offset + Integer.BYTES);
+		return bytes.array();
+	}
+
+	private int readInt(long offset) throws IOException {
+		ByteBuffer value = ByteBuffer.allocate(Integer.BYTES);
+		readFully(value, offset);
+		return value.getInt();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+}
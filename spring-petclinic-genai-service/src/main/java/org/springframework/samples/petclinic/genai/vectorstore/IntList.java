@@ -0,0 +1,27 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable list of slots, lighter than a {@code List<Integer>}.
+ */
+final class IntList {
+
+	int[] values = new int[16];
+
+	int size;
+
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	void addTo(BitSet bits) {
+		for (int i = 0; i < size; i++) {
+			bits.set(values[i]);
+		}
+	}
+}
@@ -0,0 +1,554 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link VectorStore} persisted in a directory and searched through an IVF (inverted file) index,
+ * replacing the {@code SimpleVectorStore} that kept every embedding on the heap and scanned all of
+ * them on each search.
+ * <p>
+ * The vectors, normalized so that the cosine similarity is a dot product, live in a memory-mapped
+ * {@link VectorFile}; documents are committed to a {@link DocumentLog}. Opening the store maps the
+ * vectors and replays the headers of the log, so it stays fast however many documents it holds;
+ * only when some metadata is filterable is the metadata of every document read back. Once the
+ * store reaches {@link VectorStoreProperties#indexThreshold()} documents, a k-means pass groups
+ * the vectors around {@link VectorStoreProperties#lists()} centroids, stored with the assignment
+ * of every vector; documents added later join their nearest centroid. A search then only scans the
+ * lists of the {@link VectorStoreProperties#probes()} centroids closest to the query, which makes
+ * it approximate.
+ * <p>
+ * Searches may be narrowed by a filter expression on the metadata keys declared filterable. The
+ * filter is evaluated first, by a {@link MetadataIndex} kept in memory, and only the vectors of
+ * the matching documents are scanned: exhaustively when they are at most
+ * {@link VectorStoreProperties#indexThreshold()}, through the IVF lists otherwise.
+ * {@link #find(Filter.Expression, int)} returns the matching documents without a query, so
+ * without computing any embedding.
+ * <p>
+ * Deleted documents keep their slot: the space is not reclaimed.
+ */
+public class MappedVectorStore implements VectorStore, AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MappedVectorStore.class);
+
+	private static final int KMEANS_ITERATIONS = 5;
+
+	private static final int TRAINING_SAMPLES_PER_LIST = 32;
+
+	private static final int UNASSIGNED = -1;
+
+	private final EmbeddingModel embeddingModel;
+
+	private final VectorStoreProperties properties;
+
+	private final VectorFile vectors;
+
+	private final DocumentLog documents;
+
+	private final FileChannel assignmentFile;
+
+	private final MetadataIndex metadataIndex;
+
+	private final Path centroidFile;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Integer> slotsById = new HashMap<>();
+
+	private final List<String> ids = new ArrayList<>();
+
+	private final BitSet live = new BitSet();
+
+	private long[] offsets = new long[64];
+
+	private float[][] centroids;
+
+	private IntList[] lists;
+
+	public MappedVectorStore(VectorStoreProperties properties, EmbeddingModel embeddingModel, ObjectMapper objectMapper)
+			throws IOException {
+		this.properties = properties;
+		this.embeddingModel = embeddingModel;
+		Path directory = properties.directory();
+		Files.createDirectories(directory);
+		this.vectors = new VectorFile(directory.resolve("vectors.f32"));
+		this.documents = new DocumentLog(directory.resolve("documents.log"), objectMapper);
+		this.assignmentFile = FileChannel.open(directory.resolve("assignments.i32"), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.centroidFile = directory.resolve("centroids.f32");
+		this.metadataIndex = new MetadataIndex(properties.filterableMetadata());
+		open();
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return live.cardinality();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Ids of the documents stored.
+	 */
+	public Set<String> ids() {
+		lock.readLock().lock();
+		try {
+			return Set.copyOf(slotsById.keySet());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The document stored under {@code id}, with its embedding normalized.
+	 */
+	public Optional<Document> get(String id) {
+		lock.readLock().lock();
+		try {
+			Integer slot = slotsById.get(id);
+			if (slot == null) {
+				return Optional.empty();
+			}
+			DocumentLog.Entry entry = documents.read(offsets[slot]);
+			Document document = new Document(id, entry.content(), entry.metadata());
+			document.setEmbedding(vectors.read(slot));
+			return Optional.of(document);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not read a document from the vector store", e);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The documents matching {@code filter}, all of them if {@code null}, in the order they were
+	 * added and without their embedding. Up to {@code limit} of them are returned.
+	 */
+	public List<Document> find(Filter.Expression filter, int limit) {
+		lock.readLock().lock();
+		try {
+			BitSet matches = filter == null ? live : metadataIndex.matches(filter, live);
+			List<Document> results = new ArrayList<>();
+			for (int slot = matches.nextSetBit(0); slot >= 0 && results.size() < limit; slot = matches.nextSetBit(slot + 1)) {
+				DocumentLog.Entry entry = documents.read(offsets[slot]);
+				results.add(new Document(ids.get(slot), entry.content(), entry.metadata()));
+			}
+			return results;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not read documents from the vector store", e);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void add(List<Document> added) {
+		List<Document> toEmbed = added.stream().filter(document -> !hasEmbedding(document)).toList();
+		if (!toEmbed.isEmpty()) {
+			List<float[]> embeddings = embeddingModel.embed(toEmbed.stream().map(Document::getContent).toList());
+			for (int i = 0; i < toEmbed.size(); i++) {
+				toEmbed.get(i).setEmbedding(embeddings.get(i));
+			}
+		}
+		lock.writeLock().lock();
+		try {
+			for (Document document : added) {
+				Integer previous = slotsById.get(document.getId());
+				if (previous != null) {
+					remove(previous);
+				}
+				int slot = ids.size();
+				float[] vector = normalize(document.getEmbedding());
+				vectors.write(slot, vector);
+				int list = centroids == null ? UNASSIGNED : nearestCentroids(vector, 1)[0];
+				writeAssignment(slot, list);
+				long offset = documents.add(slot, document.getId(), document.getContent(), document.getMetadata());
+				register(slot, document.getId(), offset, list);
+				metadataIndex.add(slot, document.getMetadata());
+			}
+			if (centroids == null && live.cardinality() >= properties.indexThreshold()) {
+				train();
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not add documents to the vector store", e);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Optional<Boolean> delete(List<String> idList) {
+		lock.writeLock().lock();
+		try {
+			boolean deleted = false;
+			for (String id : idList) {
+				Integer slot = slotsById.get(id);
+				if (slot != null) {
+					remove(slot);
+					deleted = true;
+				}
+			}
+			return Optional.of(deleted);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not delete documents from the vector store", e);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Document> similaritySearch(SearchRequest request) {
+		float[] query = normalize(embeddingModel.embed(request.getQuery()));
+		lock.readLock().lock();
+		try {
+			if (vectors.isInitialized() && query.length != vectors.dimensions()) {
+				throw new IllegalArgumentException("Expected a query embedding of " + vectors.dimensions()
+						+ " dimensions but got " + query.length);
+			}
+			BitSet candidates = request.hasFilterExpression()
+					? metadataIndex.matches(request.getFilterExpression(), live) : live;
+			PriorityQueue<Hit> best = new PriorityQueue<>();
+			if (centroids == null || candidates.cardinality() <= properties.indexThreshold()) {
+				for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+					consider(best, slot, query, request);
+				}
+			}
+			else {
+				for (int list : nearestCentroids(query, Math.min(properties.probes(), centroids.length))) {
+					IntList slots = lists[list];
+					for (int i = 0; i < slots.size; i++) {
+						if (candidates.get(slots.values[i])) {
+							consider(best, slots.values[i], query, request);
+						}
+					}
+				}
+			}
+			List<Hit> hits = new ArrayList<>(best);
+			hits.sort(null);
+			List<Document> results = new ArrayList<>(hits.size());
+			for (int i = hits.size() - 1; i >= 0; i--) {
+				results.add(document(hits.get(i)));
+			}
+			return results;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not read documents from the vector store", e);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			vectors.close();
+			documents.force();
+			documents.close();
+			assignmentFile.close();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void open() throws IOException {
+		documents.replay(new DocumentLog.Replay() {
+			@Override
+			public void added(int slot, String id, long offset) {
+				Integer previous = slotsById.get(id);
+				if (previous != null) {
+					live.clear(previous);
+				}
+				register(slot, id, offset, UNASSIGNED);
+			}
+
+			@Override
+			public void deleted(int slot) {
+				live.clear(slot);
+				slotsById.remove(ids.get(slot), slot);
+			}
+		});
+		if (!metadataIndex.isEmpty()) {
+			for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+				metadataIndex.add(slot, documents.readMetadata(offsets[slot]));
+			}
+		}
+		if (Files.exists(centroidFile)) {
+			readCentroids();
+			ByteBuffer stored = ByteBuffer.allocate((int) Math.min(assignmentFile.size(), (long) ids.size() * Integer.BYTES));
+			assignmentFile.read(stored, 0);
+			stored.flip();
+			for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+				int list = (slot + 1) * Integer.BYTES <= stored.limit() ? stored.getInt(slot * Integer.BYTES) : UNASSIGNED;
+				if (list == UNASSIGNED || list >= centroids.length) {
+					// Committed to the log before its assignment reached the disk
+					list = nearestCentroids(vectors.read(slot), 1)[0];
+					writeAssignment(slot, list);
+				}
+				assign(slot, list);
+			}
+		}
+		LOG.info("Vector store opened with {} documents{}", live.cardinality(),
+				centroids == null ? "" : ", indexed in " + centroids.length + " lists");
+	}
+
+	private void register(int slot, String id, long offset, int list) {
+		while (ids.size() <= slot) {
+			ids.add(null);
+		}
+		ids.set(slot, id);
+		if (slot >= offsets.length) {
+			offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, slot + 1));
+		}
+		offsets[slot] = offset;
+		slotsById.put(id, slot);
+		live.set(slot);
+		if (list != UNASSIGNED) {
+			assign(slot, list);
+		}
+	}
+
+	private void remove(int slot) throws IOException {
+		documents.delete(slot);
+		live.clear(slot);
+		slotsById.remove(ids.get(slot), slot);
+	}
+
+	private void assign(int slot, int list) {
+		lists[list].add(slot);
+	}
+
+	private void consider(PriorityQueue<Hit> best, int slot, float[] query, SearchRequest request) {
+		double similarity = dot(query, vectors.floats(), slot * query.length);
+		if (similarity < request.getSimilarityThreshold()) {
+			return;
+		}
+		if (best.size() < request.getTopK()) {
+			best.add(new Hit(slot, similarity));
+		}
+		else if (best.peek().similarity() < similarity) {
+			best.poll();
+			best.add(new Hit(slot, similarity));
+		}
+	}
+
+	private Document document(Hit hit) throws IOException {
+		DocumentLog.Entry entry = documents.read(offsets[hit.slot()]);
+		Map<String, Object> metadata = new HashMap<>(entry.metadata());
+		metadata.put("distance", (float) (1 - hit.similarity()));
+		return new Document(ids.get(hit.slot()), entry.content(), metadata);
+	}
+
+	/**
+	 * Spherical k-means over a sample of the vectors, then assignment of every vector to its
+	 * nearest centroid. Runs once, under the write lock.
+	 */
+	private void train() throws IOException {
+		long start = System.nanoTime();
+		int count = live.cardinality();
+		int listCount = Math.max(1, Math.min(properties.lists(), count / TRAINING_SAMPLES_PER_LIST));
+		int[] sample = sample(Math.min(count, listCount * TRAINING_SAMPLES_PER_LIST));
+		Random random = new Random(42);
+		float[][] means = new float[listCount][];
+		for (int i = 0; i < listCount; i++) {
+			means[i] = vectors.read(sample[random.nextInt(sample.length)]);
+		}
+		this.centroids = means;
+		int dimensions = vectors.dimensions();
+		for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+			float[][] sums = new float[listCount][dimensions];
+			int[] sizes = new int[listCount];
+			for (int slot : sample) {
+				float[] vector = vectors.read(slot);
+				int list = nearestCentroids(vector, 1)[0];
+				sizes[list]++;
+				for (int d = 0; d < dimensions; d++) {
+					sums[list][d] += vector[d];
+				}
+			}
+			for (int list = 0; list < listCount; list++) {
+				if (sizes[list] > 0) {
+					centroids[list] = normalize(sums[list]);
+				}
+			}
+		}
+		this.lists = new IntList[listCount];
+		for (int list = 0; list < listCount; list++) {
+			lists[list] = new IntList();
+		}
+		for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+			int list = nearestCentroids(vectors.read(slot), 1)[0];
+			writeAssignment(slot, list);
+			assign(slot, list);
+		}
+		writeCentroids();
+		LOG.info("Vector store indexed {} documents in {} lists in {} ms", count, listCount,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	private int[] sample(int size) {
+		int[] sample = new int[size];
+		int count = live.cardinality();
+		int index = 0;
+		int position = 0;
+		for (int slot = live.nextSetBit(0); slot >= 0 && index < size; slot = live.nextSetBit(slot + 1), position++) {
+			// Evenly spread over the slots
+			if ((long) position * size / count == index) {
+				sample[index++] = slot;
+			}
+		}
+		return Arrays.copyOf(sample, index);
+	}
+
+	private int[] nearestCentroids(float[] vector, int n) {
+		PriorityQueue<Hit> best = new PriorityQueue<>();
+		for (int list = 0; list < centroids.length; list++) {
+			double similarity = dot(vector, centroids[list]);
+			if (best.size() < n) {
+				best.add(new Hit(list, similarity));
+			}
+			else if (best.peek().similarity() < similarity) {
+				best.poll();
+				best.add(new Hit(list, similarity));
+			}
+		}
+		return best.stream().mapToInt(Hit::slot).toArray();
+	}
+
+	private void writeAssignment(int slot, int list) throws IOException {
+		if (list == UNASSIGNED) {
+			return;
+		}
+		ByteBuffer value = ByteBuffer.allocate(Integer.BYTES).putInt(list).flip();
+		assignmentFile.write(value, (long) slot * Integer.BYTES);
+	}
+
+	private void writeCentroids() throws IOException {
+		Path temp = centroidFile.resolveSibling(centroidFile.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temp); DataOutputStream data = new DataOutputStream(out)) {
+			data.writeInt(centroids.length);
+			data.writeInt(vectors.dimensions());
+			for (float[] centroid : centroids) {
+				for (float value : centroid) {
+					data.writeFloat(value);
+				}
+			}
+		}
+		assignmentFile.force(false);
+		Files.move(temp, centroidFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void readCentroids() throws IOException {
+		try (InputStream in = Files.newInputStream(centroidFile);
+				DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+			int listCount = data.readInt();
+			int dimensions = data.readInt();
+			this.centroids = new float[listCount][dimensions];
+			for (float[] centroid : centroids) {
+				for (int d = 0; d < dimensions; d++) {
+					centroid[d] = data.readFloat();
+				}
+			}
+		}
+		this.lists = new IntList[centroids.length];
+		for (int list = 0; list < lists.length; list++) {
+			lists[list] = new IntList();
+		}
+	}
+
+	private static boolean hasEmbedding(Document document) {
+		return document.getEmbedding() != null && document.getEmbedding().length > 0;
+	}
+
+	static float[] normalize(float[] vector) {
+		double norm = 0;
+		for (float value : vector) {
+			norm += value * value;
+		}
+		if (norm == 0) {
+			return vector.clone();
+		}
+		float scale = (float) (1 / Math.sqrt(norm));
+		float[] normalized = new float[vector.length];
+		for (int i = 0; i < vector.length; i++) {
+			normalized[i] = vector[i] * scale;
+		}
+		return normalized;
+	}
+
+	private static double dot(float[] a, float[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	private static double dot(float[] a, FloatBuffer b, int offset) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b.get(offset + i);
+		}
+		return sum;
+	}
+
+	private record Hit(int slot, double similarity) implements Comparable<Hit> {
+
+		@Override
+		public int compareTo(Hit other) {
+			return Double.compare(similarity, other.similarity);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+/**
+ * Inverted index of the metadata of a {@link MappedVectorStore}, for the keys listed in
+ * {@link VectorStoreProperties#filterableMetadata()}: every value points to the slots of the
+ * documents holding it. A filter expression is evaluated against the index alone, giving the set
+ * of matching slots before any vector is read.
+ * <p>
+ * Numbers compare by value whatever their type, strings and booleans by equality, strings also by
+ * order. A comparison with a key holding a list holds when it holds for one of its elements, so
+ * {@code specialties == 'radiology'} matches the documents whose specialties include radiology.
+ */
+class MetadataIndex {
+
+	private final Set<String> keys;
+
+	private final Map<String, Map<Object, IntList>> postings = new HashMap<>();
+
+	MetadataIndex(Set<String> keys) {
+		this.keys = keys;
+	}
+
+	void add(int slot, Map<String, Object> metadata) {
+		for (String key : keys) {
+			Object value = metadata.get(key);
+			if (value instanceof Collection<?> elements) {
+				for (Object element : elements) {
+					index(key, element, slot);
+				}
+			}
+			else {
+				index(key, value, slot);
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return keys.isEmpty();
+	}
+
+	/**
+	 * Slots of the live documents matching the filter.
+	 */
+	BitSet matches(Filter.Expression filter, BitSet live) {
+		BitSet matches = evaluate(filter, live);
+		matches.and(live);
+		return matches;
+	}
+
+	private void index(String key, Object value, int slot) {
+		if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+			postings.computeIfAbsent(key, k -> new HashMap<>())
+				.computeIfAbsent(normalize(value), v -> new IntList())
+				.add(slot);
+		}
+	}
+
+	private BitSet evaluate(Filter.Operand operand, BitSet live) {
+		if (operand instanceof Filter.Group group) {
+			return evaluate(group.content(), live);
+		}
+		if (!(operand instanceof Filter.Expression expression)) {
+			throw new IllegalArgumentException("Unexpected filter operand " + operand);
+		}
+		BitSet result;
+		switch (expression.type()) {
+			case AND -> {
+				result = evaluate(expression.left(), live);
+				result.and(evaluate(expression.right(), live));
+			}
+			case OR -> {
+				result = evaluate(expression.left(), live);
+				result.or(evaluate(expression.right(), live));
+			}
+			case NOT -> {
+				result = (BitSet) live.clone();
+				result.andNot(evaluate(expression.left(), live));
+			}
+			default -> result = compare(expression);
+		}
+		return result;
+	}
+
+	private BitSet compare(Filter.Expression expression) {
+		if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value operand)) {
+			throw new IllegalArgumentException("Unsupported filter expression " + expression);
+		}
+		if (!keys.contains(key.key())) {
+			throw new IllegalArgumentException("Metadata key '" + key.key() + "' is not filterable, add it to "
+					+ "genai.vector-store.filterable-metadata");
+		}
+		Map<Object, IntList> values = postings.getOrDefault(key.key(), Map.of());
+		BitSet result = new BitSet();
+		Filter.ExpressionType type = expression.type();
+		if (type == Filter.ExpressionType.EQ || type == Filter.ExpressionType.IN) {
+			// Direct lookups rather than a pass over the values of the key
+			for (Object value : operands(type, operand.value())) {
+				IntList slots = values.get(normalize(value));
+				if (slots != null) {
+					slots.addTo(result);
+				}
+			}
+			return result;
+		}
+		List<Object> operands = operands(type, operand.value()).stream().map(MetadataIndex::normalize).toList();
+		values.forEach((value, slots) -> {
+			if (test(type, value, operands)) {
+				slots.addTo(result);
+			}
+		});
+		return result;
+	}
+
+	private static List<?> operands(Filter.ExpressionType type, Object value) {
+		if (type == Filter.ExpressionType.IN || type == Filter.ExpressionType.NIN) {
+			return value instanceof Collection<?> values ? List.copyOf(values) : List.of(value);
+		}
+		return List.of(value);
+	}
+
+	private static boolean test(Filter.ExpressionType type, Object value, List<Object> operands) {
+		if (type == Filter.ExpressionType.NE) {
+			return !value.equals(operands.get(0));
+		}
+		if (type == Filter.ExpressionType.NIN) {
+			return !operands.contains(value);
+		}
+		Integer order = compare(value, operands.get(0));
+		if (order == null) {
+			return false;
+		}
+		return switch (type) {
+			case GT -> order > 0;
+			case GTE -> order >= 0;
+			case LT -> order < 0;
+			case LTE -> order <= 0;
+			default -> throw new IllegalArgumentException("Unsupported filter operator " + type);
+		};
+	}
+
+	/**
+	 * Order of two values, {@code null} when they cannot be ordered: the values of a key are not
+	 * necessarily all of the same type.
+	 */
+	private static Integer compare(Object value, Object operand) {
+		if (value instanceof Double number && operand instanceof Double other) {
+			return Double.compare(number, other);
+		}
+		if (value instanceof String text && operand instanceof String other) {
+			return text.compareTo(other);
+		}
+		return null;
+	}
+
+	private static Object normalize(Object value) {
+		return value instanceof Number number ? (Object) number.doubleValue() : value;
+	}
+}
@@ -0,0 +1,135 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped file of fixed-size float vectors, addressed by slot. The vectors are read in
+ * place: nothing is copied to the heap, and opening the file costs the same whatever its size.
+ * <p>
+ * Layout, little-endian: a 16-byte header (magic, version, dimensions, unused) followed by one
+ * {@code dimensions * 4}-byte record per slot. The file grows by doubling its capacity.
+ */
+class VectorFile implements AutoCloseable {
+
+	private static final int MAGIC = 0x50564543; // "PVEC"
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 16;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final FileChannel channel;
+
+	private int dimensions;
+
+	private int capacity;
+
+	private MappedByteBuffer mapped;
+
+	private FloatBuffer floats;
+
+	VectorFile(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		if (channel.size() >= HEADER_BYTES) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(file + " is not a vector file");
+			}
+			this.dimensions = header.getInt();
+			this.capacity = (int) ((channel.size() - HEADER_BYTES) / recordBytes());
+			map();
+		}
+	}
+
+	int dimensions() {
+		return dimensions;
+	}
+
+	boolean isInitialized() {
+		return dimensions > 0;
+	}
+
+	/**
+	 * Read view of the vectors: slot {@code s} starts at index {@code s * dimensions()}.
+	 * The view must not be kept across a {@link #write(int, float[])}, which may remap the file.
+	 */
+	FloatBuffer floats() {
+		return floats;
+	}
+
+	float[] read(int slot) {
+		float[] vector = new float[dimensions];
+		floats.get(slot * dimensions, vector);
+		return vector;
+	}
+
+	void write(int slot, float[] vector) throws IOException {
+		if (!isInitialized()) {
+			initialize(vector.length);
+		}
+		if (vector.length != dimensions) {
+			throw new IllegalArgumentException(
+					"Expected a vector of " + dimensions + " dimensions but got " + vector.length);
+		}
+		if (slot >= capacity) {
+			grow(slot + 1);
+		}
+		floats.put(slot * dimensions, vector);
+	}
+
+	void force() {
+		if (mapped != null) {
+			mapped.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	private void initialize(int dimensions) throws IOException {
+		this.dimensions = dimensions;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(0).flip();
+		channel.write(header, 0);
+		this.capacity = INITIAL_CAPACITY;
+		map();
+	}
+
+	private void grow(int minCapacity) throws IOException {
+		int newCapacity = capacity;
+		while (newCapacity < minCapacity) {
+			newCapacity *= 2;
+		}
+		this.capacity = newCapacity;
+		map();
+	}
+
+	private void map() throws IOException {
+		long size = HEADER_BYTES + (long) capacity * recordBytes();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Vector file full: " + capacity + " vectors of " + dimensions + " dimensions");
+		}
+		this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		this.floats = mapped.slice(HEADER_BYTES, (int) size - HEADER_BYTES)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.asFloatBuffer();
+	}
+
+	private long recordBytes() {
+		return (long) dimensions * Float.BYTES;
+	}
+}
@@ -0,0 +1,172 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.Resource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Binary snapshot of pre-embedded documents, shipped with the service so that it does not have
+ * to pay the AI provider to embed the same vets on every new deployment.
+ * <p>
+ * Layout, little-endian: a 16-byte header (magic, version, dimensions, document count), the
+ * vectors as one contiguous block of {@code count * dimensions} floats, then per document its
+ * id, content and JSON metadata, each as a 4-byte length followed by UTF-8 bytes. The vectors
+ * are copied out in bulk rather than parsed: a snapshot on the file system is memory-mapped,
+ * one inside a jar is read as a single stream.
+ * <p>
+ * {@link #main(String[])} converts a file saved by {@code SimpleVectorStore} into a snapshot.
+ */
+public final class VectorSnapshot {
+
+	private static final int MAGIC = 0x50565353; // "PVSS"
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 16;
+
+	private static final TypeReference<Map<String, Object>> METADATA = new TypeReference<>() {
+	};
+
+	private VectorSnapshot() {
+	}
+
+	/**
+	 * Reads the documents of a snapshot, embeddings included.
+	 */
+	public static List<Document> read(Resource resource, ObjectMapper objectMapper) throws IOException {
+		if (resource.isFile()) {
+			try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+				return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), objectMapper);
+			}
+		}
+		try (InputStream in = resource.getInputStream()) {
+			return read(ByteBuffer.wrap(in.readAllBytes()), objectMapper);
+		}
+	}
+
+	static List<Document> read(ByteBuffer snapshot, ObjectMapper objectMapper) throws IOException {
+		ByteBuffer buffer = snapshot.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Not a vector snapshot");
+		}
+		int dimensions = buffer.getInt();
+		int count = buffer.getInt();
+		int vectorBytes = Math.multiplyExact(Math.multiplyExact(count, dimensions), Float.BYTES);
+		FloatBuffer vectors = buffer.slice(HEADER_BYTES, vectorBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		buffer.position(HEADER_BYTES + vectorBytes);
+
+		List<Document> documents = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String id = readString(buffer);
+			String content = readString(buffer);
+			Map<String, Object> metadata = objectMapper.readValue(readString(buffer), METADATA);
+			Document document = new Document(id, content, metadata);
+			float[] embedding = new float[dimensions];
+			vectors.get(i * dimensions, embedding);
+			document.setEmbedding(embedding);
+			documents.add(document);
+		}
+		return documents;
+	}
+
+	/**
+	 * Writes the documents, which must all carry an embedding of the same size, as a snapshot.
+	 */
+	public static void write(List<Document> documents, OutputStream out, ObjectMapper objectMapper)
+			throws IOException {
+		int dimensions = documents.isEmpty() ? 0 : documents.get(0).getEmbedding().length;
+		ByteBuffer vectors = ByteBuffer.allocate(HEADER_BYTES + documents.size() * dimensions * Float.BYTES)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		vectors.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(documents.size());
+		for (Document document : documents) {
+			float[] embedding = document.getEmbedding();
+			if (embedding == null || embedding.length != dimensions) {
+				throw new IllegalArgumentException("Document " + document.getId() + " has no embedding of "
+						+ dimensions + " dimensions");
+			}
+			vectors.asFloatBuffer().put(embedding);
+			vectors.position(vectors.position() + embedding.length * Float.BYTES);
+		}
+		OutputStream data = new BufferedOutputStream(out);
+		data.write(vectors.array());
+		for (Document document : documents) {
+			writeString(data, document.getId());
+			writeString(data, document.getContent());
+			writeString(data, objectMapper.writeValueAsString(document.getMetadata()));
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads the documents of a file saved by {@code SimpleVectorStore}, embeddings included.
+	 */
+	public static List<Document> readSimpleVectorStore(InputStream in, ObjectMapper objectMapper) throws IOException {
+		List<Document> documents = new ArrayList<>();
+		for (JsonNode node : objectMapper.readTree(in)) {
+			JsonNode content = node.has("content") ? node.get("content") : node.get("text");
+			Map<String, Object> metadata = objectMapper.convertValue(node.get("metadata"), METADATA);
+			Document document = new Document(node.get("id").asText(), content.asText(),
+					metadata == null ? new HashMap<>() : metadata);
+			JsonNode embedding = node.get("embedding");
+			float[] vector = new float[embedding.size()];
+			for (int i = 0; i < vector.length; i++) {
+				vector[i] = embedding.get(i).floatValue();
+			}
+			document.setEmbedding(vector);
+			documents.add(document);
+		}
+		return documents;
+	}
+
+	/**
+	 * Converts a {@code SimpleVectorStore} JSON file into a snapshot:
+	 * {@code VectorSnapshot vectorstore.json src/main/resources/vectorstore.snapshot}.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: VectorSnapshot <simple-vector-store.json> <snapshot>");
+			System.exit(2);
+		}
+		ObjectMapper objectMapper = new ObjectMapper();
+		List<Document> documents;
+		try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+			documents = readSimpleVectorStore(in, objectMapper);
+		}
+		try (OutputStream out = Files.newOutputStream(Path.of(args[1]))) {
+			write(documents, out, objectMapper);
+		}
+		System.out.println("Wrote " + documents.size() + " documents to " + args[1]);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(OutputStream data, String value) throws IOException {
+		byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		data.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(bytes.length).array());
+		data.write(bytes);
+	}
+}
@@ -0,0 +1,23 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the {@link MappedVectorStore}: the directory holding its files, and its IVF index.
+ * Up to {@code indexThreshold} documents every search is an exact scan; past that, the vectors
+ * are clustered around {@code lists} centroids and a search only scans the vectors of the
+ * {@code probes} centroids closest to the query. The metadata keys listed in
+ * {@code filterableMetadata} are indexed for the filter expressions of the searches.
+ */
+@ConfigurationProperties(prefix = "genai.vector-store")
+public record VectorStoreProperties(
+		@DefaultValue("vector-store") Path directory,
+		@DefaultValue("4096") int indexThreshold,
+		@DefaultValue("128") int lists,
+		@DefaultValue("8") int probes,
+		@DefaultValue Set<String> filterableMetadata) {
+}
@@ -0,0 +1,177 @@
+package org.springframework.samples.petclinic.genai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.genai.dto.OwnerDetails;
+import org.springframework.samples.petclinic.genai.dto.Specialty;
+import org.springframework.samples.petclinic.genai.dto.Vet;
+import org.springframework.samples.petclinic.genai.vectorstore.MappedVectorStore;
+import org.springframework.samples.petclinic.genai.vectorstore.VectorStoreProperties;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+
+class AIDataProviderTest {
+
+	private static final Specialty RADIOLOGY = new Specialty(1, "radiology");
+
+	private static final Specialty SURGERY = new Specialty(2, "surgery");
+
+	@TempDir
+	Path directory;
+
+	// One direction per specialty, so that the similarity searches have a known answer
+	private final StubEmbeddingModel embeddingModel = new StubEmbeddingModel(4) {
+		@Override
+		float[] vector(String text) {
+			String lowerCase = text.toLowerCase();
+			if (lowerCase.contains("radiolog")) {
+				return new float[] { 1, 0, 0, 0 };
+			}
+			if (lowerCase.contains("surg")) {
+				return new float[] { 0, 1, 0, 0 };
+			}
+			if (lowerCase.contains("dentist")) {
+				return new float[] { 0, 0, 0, 1 };
+			}
+			return new float[] { 0, 0, 1, 0 };
+		}
+	};
+
+	private final LoopResources loopResources = LoopResources.create("test-ai-tools", 1, true);
+
+	private MappedVectorStore vectorStore;
+
+	private AIDataProvider dataProvider;
+
+	@BeforeEach
+	void storeTheVets() throws Exception {
+		vectorStore = new MappedVectorStore(new VectorStoreProperties(directory, 4096, 4, 4,
+				Set.of(VetsSynchronizer.VET_ID, VetsSynchronizer.FIRST_NAME, VetsSynchronizer.LAST_NAME,
+						VetsSynchronizer.SPECIALTIES)),
+				embeddingModel, new ObjectMapper());
+		WebClient.Builder webClientBuilder = mock(WebClient.Builder.class);
+		when(webClientBuilder.build()).thenReturn(mock(WebClient.class));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		new VetsSynchronizer(vectorStore,
+				new EmbeddingPipeline(embeddingModel, new EmbeddingPipelineProperties(32, 1, 0, 0, Duration.ZERO),
+						meterRegistry),
+				webClientBuilder, new VetsSyncProperties(true, Duration.ofMinutes(5)), meterRegistry)
+			.synchronize(List.of(new Vet(1, "James", "Carter", Set.of()),
+					new Vet(2, "Helen", "Leary", Set.of(RADIOLOGY)), new Vet(3, "Linda", "Douglas", Set.of(SURGERY)),
+					new Vet(5, "Henry", "Stevens", Set.of(RADIOLOGY))));
+		embeddingModel.requests().clear();
+
+		dataProvider = new AIDataProvider(WebClient.builder(), vectorStore, new ObjectMapper(), loopResources);
+	}
+
+	@AfterEach
+	void close() throws Exception {
+		vectorStore.close();
+		loopResources.dispose();
+	}
+
+	@Test
+	void shouldFindTheVetsOfASpecialtyWithoutEmbeddingAnything() throws Exception {
+		VetResponse response = dataProvider.getVets(specialty("Radiology"));
+
+		assertThat(response.vet()).hasSize(2).allSatisfy(vet -> assertThat(vet).contains("name=radiology"));
+		assertThat(embeddingModel.requests()).isEmpty();
+	}
+
+	@Test
+	void shouldFindAVetByName() throws Exception {
+		VetResponse response = dataProvider.getVets(new VetRequest(new Vet(null, "linda", "DOUGLAS", null)));
+
+		assertThat(response.vet()).singleElement().asString().contains("lastName=Douglas");
+	}
+
+	@Test
+	void shouldListAllTheVetsWithoutCriteria() throws Exception {
+		assertThat(dataProvider.getVets(new VetRequest(null)).vet()).hasSize(4);
+		assertThat(embeddingModel.requests()).isEmpty();
+	}
+
+	@Test
+	void shouldSearchBySimilarityWhenNothingMatchesExactly() throws Exception {
+		VetResponse response = dataProvider.getVets(specialty("radiologist"));
+
+		assertThat(response.vet()).hasSize(2).allSatisfy(vet -> assertThat(vet).contains("name=radiology"));
+		assertThat(embeddingModel.requests()).hasSize(1);
+		assertThat(embeddingModel.requests().get(0)).singleElement().asString().contains("radiologist");
+	}
+
+	@Test
+	void shouldFindNoVetRatherThanUnrelatedOnes() throws Exception {
+		VetResponse response = dataProvider.getVets(specialty("dentistry"));
+
+		assertThat(response.vet()).isEmpty();
+		assertThat(embeddingModel.requests()).hasSize(1);
+	}
+
+	@Test
+	void shouldListASinglePageOfOwners() {
+		List<String> queries = new ArrayList<>();
+		AIDataProvider owners = ownersProvider(queries);
+
+		OwnersResponse response = owners.getOwners(null, null).block();
+
+		assertThat(response.owners()).extracting(OwnerDetails::lastName).containsExactly("Black");
+		assertThat(response.nextCursor()).isEqualTo("second");
+		assertThat(response.truncated()).isTrue();
+		// The next page is left for the LLM to ask for
+		assertThat(queries).singleElement().asString().doesNotContain("cursor").doesNotContain("name");
+	}
+
+	@Test
+	void shouldListTheNextPageOfTheOwnersMatchingAName() {
+		List<String> queries = new ArrayList<>();
+		AIDataProvider owners = ownersProvider(queries);
+
+		OwnersResponse response = owners.getOwners("Da", "second").block();
+
+		assertThat(response.owners()).extracting(OwnerDetails::lastName).containsExactly("Davis");
+		assertThat(response.nextCursor()).isNull();
+		assertThat(response.truncated()).isFalse();
+		assertThat(queries).singleElement().asString().contains("name=Da").contains("cursor=second");
+	}
+
+	private AIDataProvider ownersProvider(List<String> queries) {
+		WebClient.Builder customersService = WebClient.builder().exchangeFunction(request -> {
+			String query = request.url().getQuery();
+			queries.add(query);
+			String body = query.contains("cursor=second")
+					? "{\"owners\":[{\"id\":2,\"lastName\":\"Davis\"}],\"nextCursor\":null}"
+					: "{\"owners\":[{\"id\":7,\"lastName\":\"Black\"}],\"nextCursor\":\"second\"}";
+			return Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.body(body)
+				.build());
+		});
+		return new AIDataProvider(customersService, vectorStore, new ObjectMapper(), loopResources);
+	}
+
+	private static VetRequest specialty(String name) {
+		return new VetRequest(new Vet(null, null, null, Set.of(new Specialty(null, name))));
+	}
+}
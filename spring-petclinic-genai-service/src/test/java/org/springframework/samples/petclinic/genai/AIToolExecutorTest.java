@@ -0,0 +1,127 @@
+package org.springframework.samples.petclinic.genai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.genai.vectorstore.MappedVectorStore;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Invokes the listOwners function the way simultaneous chats do, on the {@code ai-chat} threads,
+ * against a customers-service reached through the {@code ai-tools} event loops.
+ */
+class AIToolExecutorTest {
+
+	private static final int CHATS = 200;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final Scheduler chatScheduler = AIBeanConfiguration.newChatScheduler();
+
+	private final LoopResources loopResources = LoopResources.create("test-ai-tools", 2, true);
+
+	private final AtomicInteger customersServiceCalls = new AtomicInteger();
+
+	private final Set<String> customersServiceThreads = ConcurrentHashMap.newKeySet();
+
+	private DisposableServer customersService;
+
+	private Function<OwnersRequest, OwnersResponse> listOwners;
+
+	@BeforeEach
+	void startCustomersService() {
+		customersService = HttpServer.create()
+			.host("localhost")
+			.port(0)
+			.route(routes -> routes.get("/owners", (request, response) -> {
+				customersServiceCalls.incrementAndGet();
+				return response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+					.sendString(Mono.delay(Duration.ofMillis(50)).thenReturn("""
+							{"owners": [{"id": 1, "firstName": "George", "lastName": "Franklin", "pets": []}]}
+							"""));
+			}))
+			.bindNow();
+		listOwners = new AIFunctionConfiguration().listOwners(newDataProvider(), new AIToolExecutor(meterRegistry));
+	}
+
+	@AfterEach
+	void dispose() {
+		customersService.disposeNow();
+		chatScheduler.dispose();
+		loopResources.dispose();
+	}
+
+	@Test
+	void listOwnersServesSimultaneousChatsFromTheChatThreads() {
+		// Ten times the chat threads: the chats beyond them wait in the queue of the scheduler
+		List<OwnersResponse> responses = Flux.range(0, CHATS)
+			.flatMap(chat -> Mono.fromCallable(() -> listOwners.apply(null)).subscribeOn(chatScheduler), CHATS)
+			.collectList()
+			.block(Duration.ofSeconds(30));
+
+		assertThat(responses).hasSize(CHATS).allSatisfy(response -> assertThat(response.owners()).hasSize(1));
+		assertThat(customersServiceCalls).hasValue(CHATS);
+		// The calls themselves ran on the event loops reserved to the functions
+		assertThat(customersServiceThreads).isNotEmpty().allSatisfy(thread -> assertThat(thread).contains("test-ai-tools"));
+		assertThat(meterRegistry.get("petclinic.genai.tool.calls")
+			.tag("function", "listOwners")
+			.tag("outcome", "success")
+			.timer()
+			.count()).isEqualTo(CHATS);
+	}
+
+	@Test
+	void refusesToWaitOnANonBlockingThread() {
+		Mono<OwnersResponse> onParallelThread = Mono.fromCallable(() -> listOwners.apply(null))
+			.subscribeOn(Schedulers.parallel());
+
+		assertThatIllegalStateException().isThrownBy(() -> onParallelThread.block(Duration.ofSeconds(5)))
+			.withMessageContaining("listOwners");
+		assertThat(customersServiceCalls).hasValue(0);
+		assertThat(meterRegistry.get("petclinic.genai.tool.calls")
+			.tag("function", "listOwners")
+			.tag("outcome", "error")
+			.timer()
+			.count()).isEqualTo(1);
+	}
+
+	private AIDataProvider newDataProvider() {
+		// Sends the load balanced calls to the stub, through the connector AIDataProvider builds
+		WebClient.Builder webClientBuilder = WebClient.builder().filter((request, next) -> next
+			.exchange(ClientRequest.from(request)
+				.url(UriComponentsBuilder.fromUri(request.url())
+					.host("localhost")
+					.port(customersService.port())
+					.build(true)
+					.toUri())
+				.build())
+			.doOnNext(response -> customersServiceThreads.add(Thread.currentThread().getName())));
+		return new AIDataProvider(webClientBuilder, mock(MappedVectorStore.class), new ObjectMapper(), loopResources);
+	}
+}
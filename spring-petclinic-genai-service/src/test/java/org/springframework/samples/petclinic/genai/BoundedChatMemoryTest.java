@@ -0,0 +1,90 @@
+package org.springframework.samples.petclinic.genai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+class BoundedChatMemoryTest {
+
+	@TempDir
+	Path spillDirectory;
+
+	@Test
+	void conversationsAreKeptApart() {
+		BoundedChatMemory memory = new BoundedChatMemory(properties(10, 1000, null));
+
+		memory.add("alice", new UserMessage("My dog is called Rex"));
+		memory.add("bob", new UserMessage("List the vets"));
+
+		assertThat(contents(memory.get("alice", 10))).containsExactly("My dog is called Rex");
+		assertThat(contents(memory.get("bob", 10))).containsExactly("List the vets");
+	}
+
+	@Test
+	void oldestMessagesAreDroppedBeyondTheTokenBudget() {
+		// 40 characters are about 10 tokens: the budget holds two of these messages
+		BoundedChatMemory memory = new BoundedChatMemory(properties(10, 25, null));
+		String text = "x".repeat(40);
+
+		memory.add("alice", List.of(new UserMessage("1" + text.substring(1)), new AssistantMessage("2" + text.substring(1)),
+				new UserMessage("3" + text.substring(1))));
+
+		assertThat(memory.get("alice", Integer.MAX_VALUE)).hasSize(2)
+			.allSatisfy(message -> assertThat(message.getContent()).doesNotStartWith("1"));
+	}
+
+	@Test
+	void conversationsBeyondTheLimitAreEvicted() {
+		BoundedChatMemory memory = new BoundedChatMemory(properties(2, 1000, null));
+
+		for (int i = 0; i < 10; i++) {
+			memory.add("conversation-" + i, new UserMessage("Hello"));
+		}
+
+		assertThat(memory.size()).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	void evictedConversationsAreReadBackFromTheSpillDirectory() {
+		BoundedChatMemory memory = new BoundedChatMemory(properties(1, 1000, spillDirectory));
+
+		memory.add("alice", List.of(new UserMessage("My dog is called Rex"), new AssistantMessage("Hello Rex!")));
+		for (int i = 0; i < 10; i++) {
+			memory.add("conversation-" + i, new UserMessage("Hello"));
+		}
+
+		assertThat(contents(memory.get("alice", 10))).containsExactly("My dog is called Rex", "Hello Rex!");
+	}
+
+	@Test
+	void evictedConversationsAreWrittenToTheSpillDirectory() throws Exception {
+		BoundedChatMemory memory = new BoundedChatMemory(properties(1, 1000, spillDirectory));
+
+		memory.add("alice", new UserMessage("My dog is called Rex"));
+		memory.add("bob", new UserMessage("List the vets"));
+		memory.size();
+		// Waits for the pending writes
+		memory.close();
+
+		assertThat(Files.exists(spillDirectory.resolve("alice"))).isTrue();
+		BoundedChatMemory restarted = new BoundedChatMemory(properties(1, 1000, spillDirectory));
+		assertThat(contents(restarted.get("alice", 10))).containsExactly("My dog is called Rex");
+	}
+
+	private static ChatMemoryProperties properties(int maxConversations, int maxTokens, Path spillDirectory) {
+		return new ChatMemoryProperties(maxConversations, Duration.ofMinutes(30), maxTokens, spillDirectory);
+	}
+
+	private static List<String> contents(List<Message> messages) {
+		return messages.stream().map(Message::getContent).toList();
+	}
+}
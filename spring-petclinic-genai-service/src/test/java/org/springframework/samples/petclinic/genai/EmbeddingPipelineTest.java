@@ -0,0 +1,92 @@
+package org.springframework.samples.petclinic.genai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.retry.TransientAiException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EmbeddingPipelineTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void shouldEmbedManyDocumentsInBoundedConcurrentBatches() {
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(8, Duration.ofMillis(5), 0);
+		EmbeddingPipeline pipeline = pipeline(embeddingModel, new EmbeddingPipelineProperties(10, 4, 0, 3, Duration.ofMillis(10)));
+		List<Document> documents = documents(1000);
+		List<List<Document>> stored = new ArrayList<>();
+
+		EmbeddingPipeline.Result result = pipeline.embed(documents, stored::add);
+
+		assertThat(stored).hasSize(100).allSatisfy(batch -> assertThat(batch).hasSize(10));
+		assertThat(documents).allSatisfy(document -> assertThat(document.getEmbedding())
+			.isEqualTo(embeddingModel.vector(document.getContent())));
+		assertThat(embeddingModel.maxInFlight()).isBetween(2, 4);
+		assertThat(result.documents()).isEqualTo(1000);
+		assertThat(result.documentsPerSecond()).isPositive();
+		assertThat(meterRegistry.get("petclinic.genai.embedding.documents").counter().count()).isEqualTo(1000);
+	}
+
+	@Test
+	void shouldRetryTransientFailures() {
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(8, Duration.ZERO, 2);
+		EmbeddingPipeline pipeline = pipeline(embeddingModel, new EmbeddingPipelineProperties(10, 1, 0, 3, Duration.ofMillis(10)));
+		List<Document> documents = documents(10);
+
+		pipeline.embed(documents, batch -> {
+		});
+
+		assertThat(documents).allSatisfy(document -> assertThat(document.getEmbedding()).isNotNull());
+		assertThat(meterRegistry.get("petclinic.genai.embedding.retries").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldKeepTheBatchesEmbeddedBeforeGivingUp() {
+		// Three batches, one at a time: the second one keeps failing
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(8, Duration.ZERO, 0) {
+			@Override
+			public List<float[]> embed(List<String> texts) {
+				if (texts.contains("document 10")) {
+					throw new TransientAiException("503 Service Unavailable");
+				}
+				return super.embed(texts);
+			}
+		};
+		EmbeddingPipeline pipeline = pipeline(embeddingModel, new EmbeddingPipelineProperties(10, 1, 0, 2, Duration.ofMillis(10)));
+		List<List<Document>> stored = new ArrayList<>();
+
+		assertThatThrownBy(() -> pipeline.embed(documents(30), stored::add)).isInstanceOf(TransientAiException.class);
+		assertThat(stored).hasSize(1);
+		assertThat(meterRegistry.get("petclinic.genai.embedding.retries").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldLimitTheRequestRate() {
+		StubEmbeddingModel embeddingModel = new StubEmbeddingModel(8);
+		EmbeddingPipeline pipeline = pipeline(embeddingModel, new EmbeddingPipelineProperties(1, 10, 5, 0, Duration.ofMillis(10)));
+
+		// 5 requests in the first second, the next 5 in the second one
+		EmbeddingPipeline.Result result = pipeline.embed(documents(10), batch -> {
+		});
+
+		assertThat(result.elapsed()).isGreaterThan(Duration.ofMillis(500));
+		assertThat(embeddingModel.requests()).hasSize(10);
+	}
+
+	private EmbeddingPipeline pipeline(StubEmbeddingModel embeddingModel, EmbeddingPipelineProperties properties) {
+		return new EmbeddingPipeline(embeddingModel, properties, meterRegistry);
+	}
+
+	private static List<Document> documents(int count) {
+		return IntStream.range(0, count).mapToObj(i -> new Document("document " + i)).toList();
+	}
+}
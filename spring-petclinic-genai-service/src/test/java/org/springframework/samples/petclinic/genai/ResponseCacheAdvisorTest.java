@@ -0,0 +1,127 @@
+package org.springframework.samples.petclinic.genai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+class ResponseCacheAdvisorTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+
+	private final CallAroundAdvisorChain chain = mock(CallAroundAdvisorChain.class);
+
+	private final AIToolExecutor tools = new AIToolExecutor(meterRegistry);
+
+	private final ResponseCacheAdvisor advisor = advisor(Duration.ofHours(1));
+
+	@BeforeEach
+	void answerFromTheLlm() {
+		when(chain.nextAroundCall(any())).thenReturn(response("Helen Leary and Rafael Ortega"));
+		when(embeddingModel.embed(anyString())).thenReturn(new float[] { 1, 0 });
+	}
+
+	@Test
+	void shouldAnswerTheSameQuestionFromTheCache() {
+		advisor.aroundCall(request("Which vets do radiology?"), chain);
+		AdvisedResponse cached = advisor.aroundCall(request("  which vets do   radiology"), chain);
+
+		assertThat(text(cached)).isEqualTo("Helen Leary and Rafael Ortega");
+		verify(chain, times(1)).nextAroundCall(any());
+		assertThat(meterRegistry.get("petclinic.genai.response.cache").tag("result", "exact").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	void shouldAnswerASimilarQuestionFromTheCache() {
+		advisor.aroundCall(request("Which vets do radiology?"), chain);
+		when(embeddingModel.embed(anyString())).thenReturn(new float[] { 0.99f, 0.05f });
+
+		AdvisedResponse cached = advisor.aroundCall(request("Who are the radiology vets?"), chain);
+
+		assertThat(text(cached)).isEqualTo("Helen Leary and Rafael Ortega");
+		verify(chain, times(1)).nextAroundCall(any());
+	}
+
+	@Test
+	void shouldNotCacheFollowUpQuestions() {
+		AdvisedRequest followUp = AdvisedRequest.from(request("And the second one?"))
+			.withMessages(List.of(new UserMessage("Which vets do radiology?")))
+			.build();
+
+		advisor.aroundCall(followUp, chain);
+		advisor.aroundCall(followUp, chain);
+
+		verify(chain, times(2)).nextAroundCall(any());
+	}
+
+	@Test
+	void shouldForgetTheAnswersOnceTheDataIsModified() {
+		advisor.aroundCall(request("List the owners"), chain);
+
+		tools.callMutating("addOwnerToPetclinic", () -> Mono.just("added"));
+		advisor.aroundCall(request("List the owners"), chain);
+
+		verify(chain, times(2)).nextAroundCall(any());
+	}
+
+	@Test
+	void shouldKeepTheAnswersReadFromTheDataForTheirOwnTimeToLive() {
+		ResponseCacheAdvisor advisor = advisor(Duration.ZERO);
+		when(chain.nextAroundCall(any())).thenAnswer(invocation -> {
+			tools.call("listOwners", () -> Mono.just("owners"));
+			return response("George Franklin and Betty Davis");
+		});
+
+		advisor.aroundCall(request("List the owners"), chain);
+		advisor.aroundCall(request("List the owners"), chain);
+
+		verify(chain, times(2)).nextAroundCall(any());
+	}
+
+	private ResponseCacheAdvisor advisor(Duration dataTimeToLive) {
+		return new ResponseCacheAdvisor(new ResponseCacheProperties(true, 100, Duration.ofHours(1), dataTimeToLive, 0.95),
+				embeddingModel, tools, meterRegistry, Schedulers.immediate());
+	}
+
+	private static AdvisedRequest request(String question) {
+		return AdvisedRequest.builder()
+			.chatModel(mock(ChatModel.class))
+			.userText(question)
+			.adviseContext(Map.of())
+			.build();
+	}
+
+	private static AdvisedResponse response(String answer) {
+		return new AdvisedResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(answer)))), Map.of());
+	}
+
+	private static String text(AdvisedResponse response) {
+		return response.response().getResult().getOutput().getContent();
+	}
+}
@@ -0,0 +1,106 @@
+package org.springframework.samples.petclinic.genai;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.TransientAiException;
+
+/**
+ * {@link EmbeddingModel} computing its vectors locally, so that the ingestion can be exercised,
+ * and load-tested, without an AI provider. The vector of a text is derived from its hash; every
+ * request takes {@code latency}, and the first {@code transientFailures} ones fail as a rate
+ * limited provider would. The batches requested and the peak number of concurrent requests are
+ * recorded.
+ */
+class StubEmbeddingModel implements EmbeddingModel {
+
+	private final int dimensions;
+
+	private final Duration latency;
+
+	private final AtomicInteger transientFailures;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+	StubEmbeddingModel(int dimensions) {
+		this(dimensions, Duration.ZERO, 0);
+	}
+
+	StubEmbeddingModel(int dimensions, Duration latency, int transientFailures) {
+		this.dimensions = dimensions;
+		this.latency = latency;
+		this.transientFailures = new AtomicInteger(transientFailures);
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			if (!latency.isZero()) {
+				Thread.sleep(latency.toMillis());
+			}
+			if (transientFailures.getAndDecrement() > 0) {
+				throw new TransientAiException("429 Too Many Requests");
+			}
+			List<String> texts = request.getInstructions();
+			requests.add(texts);
+			List<Embedding> embeddings = new ArrayList<>(texts.size());
+			for (int i = 0; i < texts.size(); i++) {
+				embeddings.add(new Embedding(vector(texts.get(i)), i));
+			}
+			return new EmbeddingResponse(embeddings);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	@Override
+	public List<float[]> embed(List<String> texts) {
+		return call(new EmbeddingRequest(texts, null)).getResults().stream().map(Embedding::getOutput).toList();
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return embed(List.of(document.getContent())).get(0);
+	}
+
+	@Override
+	public int dimensions() {
+		return dimensions;
+	}
+
+	List<List<String>> requests() {
+		return requests;
+	}
+
+	int maxInFlight() {
+		return maxInFlight.get();
+	}
+
+	float[] vector(String text) {
+		Random random = new Random(text.hashCode());
+		float[] vector = new float[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			vector[i] = random.nextFloat() - 0.5f;
+		}
+		return vector;
+	}
+}
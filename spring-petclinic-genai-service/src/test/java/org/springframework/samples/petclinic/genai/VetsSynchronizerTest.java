@@ -0,0 +1,135 @@
+package org.springframework.samples.petclinic.genai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.samples.petclinic.genai.dto.Specialty;
+import org.springframework.samples.petclinic.genai.dto.Vet;
+import org.springframework.samples.petclinic.genai.vectorstore.MappedVectorStore;
+import org.springframework.samples.petclinic.genai.vectorstore.VectorStoreProperties;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VetsSynchronizerTest {
+
+	private static final Specialty RADIOLOGY = new Specialty(1, "radiology");
+
+	private static final Specialty SURGERY = new Specialty(2, "surgery");
+
+	private static final Specialty DENTISTRY = new Specialty(3, "dentistry");
+
+	@TempDir
+	Path directory;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final StubEmbeddingModel embeddingModel = new StubEmbeddingModel(2);
+
+	private MappedVectorStore vectorStore;
+
+	private VetsSynchronizer synchronizer;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		vectorStore = new MappedVectorStore(new VectorStoreProperties(directory, 4096, 4, 4, Set.of()), embeddingModel,
+				new ObjectMapper());
+		WebClient.Builder webClientBuilder = mock(WebClient.Builder.class);
+		when(webClientBuilder.build()).thenReturn(mock(WebClient.class));
+		EmbeddingPipeline embeddingPipeline = new EmbeddingPipeline(embeddingModel,
+				new EmbeddingPipelineProperties(2, 1, 0, 0, Duration.ofMillis(10)), meterRegistry);
+		synchronizer = new VetsSynchronizer(vectorStore, embeddingPipeline, webClientBuilder,
+				new VetsSyncProperties(true, Duration.ofMinutes(5)), meterRegistry);
+	}
+
+	@AfterEach
+	void close() throws Exception {
+		vectorStore.close();
+	}
+
+	@Test
+	void shouldEmbedEveryVetInBatchesTheFirstTime() {
+		synchronizer.synchronize(List.of(vet(1, "Carter"), vet(2, "Leary", RADIOLOGY), vet(3, "Douglas", SURGERY)));
+
+		assertThat(vectorStore.ids()).containsExactlyInAnyOrder("vet-1", "vet-2", "vet-3");
+		assertThat(embeddingModel.requests()).extracting(List::size).containsExactly(2, 1);
+		assertThat(meterRegistry.get("petclinic.genai.vets.sync.embeddings").summary().totalAmount()).isEqualTo(3);
+	}
+
+	@Test
+	void shouldOnlyEmbedTheChangedVetsAndDeleteTheRemovedOnes() {
+		synchronizer.synchronize(List.of(vet(1, "Carter"), vet(2, "Leary", RADIOLOGY), vet(3, "Douglas", SURGERY)));
+		embeddingModel.requests().clear();
+
+		synchronizer.synchronize(List.of(vet(1, "Carter"), vet(2, "Leary", RADIOLOGY, SURGERY), vet(4, "Ortega")));
+
+		assertThat(vectorStore.ids()).containsExactlyInAnyOrder("vet-1", "vet-2", "vet-4");
+		assertThat(embeddingModel.requests()).singleElement()
+			.isEqualTo(List.of(VetsSynchronizer.content(vet(2, "Leary", RADIOLOGY, SURGERY)),
+					VetsSynchronizer.content(vet(4, "Ortega"))));
+	}
+
+	@Test
+	void shouldNotEmbedAnythingWhenNothingChanged() {
+		synchronizer.synchronize(List.of(vet(1, "Carter")));
+
+		synchronizer.synchronize(List.of(vet(1, "Carter")));
+
+		assertThat(embeddingModel.requests()).hasSize(1);
+		assertThat(meterRegistry.get("petclinic.genai.vets.sync.embeddings").summary().count()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldKeepTheStoredVetsWhenNoVetIsReturned() {
+		synchronizer.synchronize(List.of(vet(1, "Carter"), vet(2, "Leary", RADIOLOGY)));
+
+		boolean applied = synchronizer.synchronize(List.of());
+
+		assertThat(applied).isFalse();
+		assertThat(vectorStore.ids()).containsExactlyInAnyOrder("vet-1", "vet-2");
+	}
+
+	@Test
+	void shouldStoreOutdatedMetadataAgainWithoutEmbedding() {
+		Document document = VetsSynchronizer.document(vet(2, "Leary", RADIOLOGY));
+		Document outdated = new Document(document.getId(), document.getContent(),
+				Map.of(VetsSynchronizer.CONTENT_HASH, document.getMetadata().get(VetsSynchronizer.CONTENT_HASH)));
+		outdated.setEmbedding(new float[] { 3, 4 });
+		vectorStore.add(List.of(outdated));
+
+		synchronizer.synchronize(List.of(vet(2, "Leary", RADIOLOGY)));
+
+		assertThat(embeddingModel.requests()).isEmpty();
+		Document stored = vectorStore.get("vet-2").orElseThrow();
+		assertThat(stored.getMetadata()).containsEntry(VetsSynchronizer.LAST_NAME, "leary")
+			.containsEntry(VetsSynchronizer.SPECIALTIES, List.of("radiology"));
+		assertThat(stored.getEmbedding()).usingComparatorWithPrecision(1e-6f).containsExactly(0.6f, 0.8f);
+	}
+
+	@Test
+	void shouldDescribeAVetTheWayTheSnapshotDoes() {
+		// Specialties come unordered from the JSON set
+		Vet linda = new Vet(3, "Linda", "Douglas", Set.of(SURGERY, DENTISTRY));
+
+		assertThat(VetsSynchronizer.content(linda)).isEqualTo(
+				"{id=3, firstName=Linda, lastName=Douglas, specialties=[{id=3, name=dentistry}, {id=2, name=surgery}], nrOfSpecialties=2}");
+	}
+
+	private static Vet vet(int id, String lastName, Specialty... specialties) {
+		return new Vet(id, "Vet", lastName, Set.of(specialties));
+	}
+}
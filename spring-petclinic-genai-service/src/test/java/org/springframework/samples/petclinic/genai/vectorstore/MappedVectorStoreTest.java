@@ -0,0 +1,159 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class MappedVectorStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+
+	@Test
+	void shouldReturnTheClosestDocumentsFirst() throws Exception {
+		try (MappedVectorStore store = newStore(4096)) {
+			store.add(List.of(document("radiology", 1, 0, 0), document("surgery", 0, 1, 0),
+					document("dentistry", 0.7f, 0.7f, 0)));
+
+			List<Document> results = store.similaritySearch(query(0.9f, 0.1f, 0).withTopK(2));
+
+			assertThat(results).extracting(Document::getId).containsExactly("radiology", "dentistry");
+			assertThat(results.get(0).getContent()).isEqualTo("radiology vet");
+			assertThat(results.get(0).getMetadata()).containsEntry("specialty", "radiology");
+		}
+	}
+
+	@Test
+	void shouldKeepTheDocumentsAcrossRestarts() throws Exception {
+		try (MappedVectorStore store = newStore(4096)) {
+			store.add(List.of(document("radiology", 1, 0, 0), document("surgery", 0, 1, 0)));
+			store.delete(List.of("surgery"));
+		}
+
+		try (MappedVectorStore store = newStore(4096)) {
+			assertThat(store.size()).isEqualTo(1);
+			assertThat(store.similaritySearch(query(0, 1, 0))).extracting(Document::getId)
+				.containsExactly("radiology");
+		}
+	}
+
+	@Test
+	void shouldReplaceADocumentAddedTwice() throws Exception {
+		try (MappedVectorStore store = newStore(4096)) {
+			store.add(List.of(document("radiology", 1, 0, 0)));
+			store.add(List.of(document("radiology", 0, 1, 0)));
+
+			assertThat(store.size()).isEqualTo(1);
+			assertThat(store.similaritySearch(query(1, 0, 0).withSimilarityThreshold(0.5))).isEmpty();
+			assertThat(store.similaritySearch(query(0, 1, 0))).extracting(Document::getId)
+				.containsExactly("radiology");
+		}
+	}
+
+	@Test
+	void shouldFindTheNearestNeighbourThroughTheIndex() throws Exception {
+		Random random = new Random(7);
+		List<Document> documents = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			documents.add(document("doc-" + i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f));
+		}
+		Document target = documents.get(123);
+
+		try (MappedVectorStore store = newStore(100)) {
+			store.add(documents);
+			List<Document> results = store.similaritySearch(query(target.getEmbedding()).withTopK(1));
+			assertThat(results).extracting(Document::getId).containsExactly("doc-123");
+		}
+
+		// The index is reloaded rather than rebuilt
+		try (MappedVectorStore store = newStore(100)) {
+			List<Document> results = store.similaritySearch(query(target.getEmbedding()).withTopK(1));
+			assertThat(results).extracting(Document::getId).containsExactly("doc-123");
+		}
+	}
+
+	@Test
+	void shouldOnlyScanTheDocumentsMatchingTheFilter() throws Exception {
+		try (MappedVectorStore store = newStore(4096)) {
+			store.add(List.of(document("radiology", 1, 0, 0), document("surgery", 0, 1, 0),
+					document("dentistry", 0.7f, 0.7f, 0)));
+
+			List<Document> results = store.similaritySearch(query(1, 0, 0).withFilterExpression("specialty != 'radiology'"));
+
+			assertThat(results).extracting(Document::getId).containsExactly("dentistry", "surgery");
+		}
+	}
+
+	@Test
+	void shouldFindTheDocumentsWithAListElementWithoutEmbeddingAnything() throws Exception {
+		try (MappedVectorStore store = newStore(4096)) {
+			store.add(List.of(vet("leary", List.of("radiology"), 1, 0, 0),
+					vet("douglas", List.of("dentistry", "surgery"), 0, 1, 0), vet("ortega", List.of("surgery"), 0, 0, 1)));
+		}
+
+		// The index is rebuilt from the log
+		try (MappedVectorStore store = newStore(4096)) {
+			FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+			assertThat(store.find(b.eq("specialty", "surgery").build(), 10)).extracting(Document::getId)
+				.containsExactly("douglas", "ortega");
+			assertThat(store.find(b.and(b.in("specialty", "surgery", "radiology"), b.not(b.eq("specialty", "dentistry")))
+				.build(), 10)).extracting(Document::getId).containsExactly("leary", "ortega");
+			assertThat(store.find(null, 2)).hasSize(2);
+			verifyNoInteractions(embeddingModel);
+		}
+	}
+
+	@Test
+	void shouldRejectAFilterOnAKeyThatIsNotIndexed() throws Exception {
+		try (MappedVectorStore store = newStore(4096)) {
+			store.add(List.of(document("radiology", 1, 0, 0)));
+
+			assertThatIllegalArgumentException()
+				.isThrownBy(() -> store.find(new FilterExpressionBuilder().eq("name", "Leary").build(), 10));
+		}
+	}
+
+	private MappedVectorStore newStore(int indexThreshold) throws Exception {
+		// Few lists, all probed: the approximate search is then exact
+		return new MappedVectorStore(new VectorStoreProperties(directory, indexThreshold, 4, 4, Set.of("specialty")),
+				embeddingModel, new ObjectMapper());
+	}
+
+	private SearchRequest query(float... embedding) {
+		when(embeddingModel.embed(anyString())).thenReturn(embedding);
+		return SearchRequest.query("query");
+	}
+
+	private static Document document(String id, float... embedding) {
+		return vet(id, id, embedding);
+	}
+
+	private static Document vet(String id, Object specialty, float... embedding) {
+		Document document = new Document(id, id + " vet", Map.of("specialty", specialty));
+		document.setEmbedding(embedding);
+		return document;
+	}
+}
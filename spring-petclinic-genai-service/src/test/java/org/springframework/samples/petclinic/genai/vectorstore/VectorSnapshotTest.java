@@ -0,0 +1,90 @@
+package org.springframework.samples.petclinic.genai.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class VectorSnapshotTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void shouldReadBackWhatWasWrittenFromAStream() throws Exception {
+		byte[] snapshot = write(documents());
+
+		List<Document> documents = VectorSnapshot.read(new ByteArrayResource(snapshot), objectMapper);
+
+		assertDocuments(documents);
+	}
+
+	@Test
+	void shouldReadBackWhatWasWrittenFromAMappedFile() throws Exception {
+		Path file = Files.write(directory.resolve("vectorstore.snapshot"), write(documents()));
+
+		List<Document> documents = VectorSnapshot.read(new FileSystemResource(file), objectMapper);
+
+		assertDocuments(documents);
+	}
+
+	@Test
+	void shouldConvertASimpleVectorStoreFile() throws Exception {
+		String json = """
+				{ "1": { "id": "1", "content": "{id=1, firstName=James}", "metadata": {},
+				         "embedding": [0.5, -0.25] } }
+				""";
+
+		List<Document> documents = VectorSnapshot.readSimpleVectorStore(
+				new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), objectMapper);
+
+		assertThat(documents).singleElement().satisfies(document -> {
+			assertThat(document.getContent()).isEqualTo("{id=1, firstName=James}");
+			assertThat(document.getEmbedding()).containsExactly(0.5f, -0.25f);
+		});
+	}
+
+	@Test
+	void shouldRejectAnythingElse() {
+		assertThatIOException().isThrownBy(() -> VectorSnapshot
+			.read(new ByteArrayResource("[]".getBytes(StandardCharsets.UTF_8)), objectMapper));
+	}
+
+	private byte[] write(List<Document> documents) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		VectorSnapshot.write(documents, out, objectMapper);
+		return out.toByteArray();
+	}
+
+	private static List<Document> documents() {
+		Document james = new Document("james", "James Carter", Map.of("specialties", "none"));
+		james.setEmbedding(new float[] { 0.1f, 0.2f, 0.3f });
+		Document helen = new Document("helen", "Helen Leary – radiology", Map.of());
+		helen.setEmbedding(new float[] { -1f, 0f, 1f });
+		return List.of(james, helen);
+	}
+
+	private static void assertDocuments(List<Document> documents) {
+		assertThat(documents).extracting(Document::getId).containsExactly("james", "helen");
+		assertThat(documents.get(0).getEmbedding()).containsExactly(0.1f, 0.2f, 0.3f);
+		assertThat(documents.get(0).getMetadata()).containsEntry("specialties", "none");
+		assertThat(documents.get(1).getContent()).isEqualTo("Helen Leary – radiology");
+		assertThat(documents.get(1).getEmbedding()).containsExactly(-1f, 0f, 1f);
+	}
+}
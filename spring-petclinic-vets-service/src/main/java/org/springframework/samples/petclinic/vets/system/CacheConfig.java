@@ -15,16 +15,39 @@
  */
 package org.springframework.samples.petclinic.vets.system;
 
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.vets.web.VetsCatalog;
 
 /**
- * Cache could be disable in unit test.
+ * The {@code vets} cache holds the encoded vets list of {@link VetsCatalog}, in at most
+ * {@code vets.cache.heap-size} entries. Once an entry is older than {@code vets.cache.ttl} seconds,
+ * the next read returns it and reloads it in the background, so no request waits on the database
+ * after the first load.
+ * <p>
+ * Hits, misses, evictions and load times are published by the cache metrics ({@code cache.*}).
+ * {@code DELETE /actuator/caches/vets} drops the list when the vets tables change.
+ *
  * @author Maciej Szarlinski
  */
 @Configuration
 @EnableCaching
-@Profile("production")
 class CacheConfig {
+
+    @Bean
+    CacheManager cacheManager(VetsProperties properties, VetsCatalog vetsCatalog) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache("vets", Caffeine.newBuilder()
+            .maximumSize(properties.cache().heapSize())
+            .refreshAfterWrite(Duration.ofSeconds(properties.cache().ttl()))
+            .recordStats()
+            .build(key -> vetsCatalog.load()));
+        return cacheManager;
+    }
 }
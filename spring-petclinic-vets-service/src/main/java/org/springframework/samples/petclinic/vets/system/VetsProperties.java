@@ -26,6 +26,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public record VetsProperties(
     Cache cache
 ) {
+    /**
+     * @param ttl      seconds after which a cached vets list is refreshed
+     * @param heapSize maximum number of cached entries
+     */
     public record Cache(
         int ttl,
         int heapSize
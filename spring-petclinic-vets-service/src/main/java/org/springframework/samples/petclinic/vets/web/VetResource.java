@@ -15,12 +15,11 @@
  */
 package org.springframework.samples.petclinic.vets.web;
 
-import java.util.List;
-
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.samples.petclinic.vets.model.Vet;
-import org.springframework.samples.petclinic.vets.model.VetRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -35,15 +34,29 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 class VetResource {
 
-    private final VetRepository vetRepository;
+    private final VetsCatalog vetsCatalog;
 
-    VetResource(VetRepository vetRepository) {
-        this.vetRepository = vetRepository;
+    VetResource(VetsCatalog vetsCatalog) {
+        this.vetsCatalog = vetsCatalog;
     }
 
-    @GetMapping
-    @Cacheable("vets")
-    public List<Vet> showResourcesVetList() {
-        return vetRepository.findAll();
+    /**
+     * Serves the pre-encoded vets list. The ETag makes a matching {@code If-None-Match} answer
+     * 304 Not Modified without a body.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> showResourcesVetList(
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        VetsJson vets = vetsCatalog.vets();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.eTag(vets.gzipEtag())
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(vets.gzip());
+        }
+        return response.eTag(vets.etag()).body(vets.json());
     }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.samples.petclinic.vets.model.VetRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Source of the cached {@link VetsJson}. Serializing once per load, rather than once per request,
+ * keeps Jackson and the sorting of the specialties out of the read path.
+ */
+@Component
+public class VetsCatalog {
+
+    private final VetRepository vetRepository;
+    private final ObjectMapper objectMapper;
+
+    public VetsCatalog(VetRepository vetRepository, ObjectMapper objectMapper) {
+        this.vetRepository = vetRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Cacheable("vets")
+    public VetsJson vets() {
+        return load();
+    }
+
+    /**
+     * Reads and encodes the vets, bypassing the cache. Also used by the cache to refresh its entry.
+     */
+    public VetsJson load() {
+        try {
+            return VetsJson.of(objectMapper.writeValueAsBytes(vetRepository.findAll()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the vets", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.springframework.samples.petclinic.vets.system;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.SimpleKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.samples.petclinic.vets.model.Vet;
+import org.springframework.samples.petclinic.vets.model.VetRepository;
+import org.springframework.samples.petclinic.vets.web.VetsCatalog;
+import org.springframework.samples.petclinic.vets.web.VetsJson;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CacheConfigTest {
+
+    private final VetRepository vetRepository = mock(VetRepository.class);
+
+    private final Cache vets = new CacheConfig()
+        .cacheManager(new VetsProperties(new VetsProperties.Cache(60, 10)), new VetsCatalog(vetRepository, new ObjectMapper()))
+        .getCache("vets");
+
+    @Test
+    void shouldLoadTheVetsOnceAndRecordStatistics() {
+        given(vetRepository.findAll()).willReturn(List.of(new Vet()));
+
+        VetsJson first = vets.get(SimpleKey.EMPTY, VetsJson.class);
+        VetsJson second = vets.get(SimpleKey.EMPTY, VetsJson.class);
+
+        assertThat(second).isSameAs(first);
+
+        verify(vetRepository, times(1)).findAll();
+        var stats = ((CaffeineCache) vets).getNativeCache().stats();
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.loadSuccessCount()).isEqualTo(1);
+    }
+}
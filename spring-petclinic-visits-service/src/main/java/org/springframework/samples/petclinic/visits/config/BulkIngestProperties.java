@@ -0,0 +1,33 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the bulk visit ingest.
+ *
+ * @param batchSize         number of visits written per transaction and JDBC batch; also used as
+ *                          {@code hibernate.jdbc.batch_size}
+ * @param maxReportedErrors rejected items listed in the response; later rejections are only counted
+ */
+@ConfigurationProperties(prefix = "visits.bulk")
+public record BulkIngestProperties(
+    @DefaultValue("500") int batchSize,
+    @DefaultValue("1000") int maxReportedErrors
+) {
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Query fragments for reading visit histories. They are shaped to be served by the
+ * {@code (pet_id, visit_date)} index: an equality or {@code IN} on the pet, then a range on the date.
+ */
+public final class VisitSpecifications {
+
+    /**
+     * Most recent visits first; the id breaks ties between visits of the same day. Visits without a date
+     * come last: HSQLDB and MySQL both sort nulls last in descending order.
+     */
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+
+    private VisitSpecifications() {
+    }
+
+    public static Specification<Visit> petId(int petId) {
+        return (root, query, cb) -> cb.equal(root.get("petId"), petId);
+    }
+
+    public static Specification<Visit> petIdIn(Collection<Integer> petIds) {
+        return (root, query, cb) -> root.get("petId").in(petIds);
+    }
+
+    /**
+     * Visits between two days, both inclusive. A {@code null} bound leaves that side open.
+     */
+    public static Specification<Visit> between(LocalDate from, LocalDate to) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(2);
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<Date>get("date"), java.sql.Date.valueOf(from)));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.<Date>get("date"), java.sql.Date.valueOf(to.plusDays(1))));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Visits that come after the given one in {@link #NEWEST_FIRST} order. A {@code null} date stands for
+     * a visit without a date, which only other visits without a date come after.
+     */
+    public static Specification<Visit> olderThan(LocalDate date, int id) {
+        return (root, query, cb) -> {
+            Path<Date> visitDate = root.get("date");
+            Predicate undatedOlder = cb.and(cb.isNull(visitDate), cb.lessThan(root.<Integer>get("id"), id));
+            if (date == null) {
+                return undatedOlder;
+            }
+            Date day = java.sql.Date.valueOf(date);
+            return cb.or(
+                cb.lessThan(visitDate, day),
+                cb.and(cb.equal(visitDate, day), cb.lessThan(root.<Integer>get("id"), id)),
+                cb.isNull(visitDate));
+        };
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.config.BulkIngestProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitBatchRepository;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Bulk ingest of visits, e.g. when migrating records from another clinic system.
+ * <p>
+ * The body is either a JSON array or an NDJSON stream of visits. It is read incrementally and written
+ * in batches of {@code visits.bulk.batch-size}, one transaction per batch. Invalid items are reported
+ * with their zero-based position and do not abort the load; when a batch fails in the database, its
+ * visits are retried one by one so that only the offending ones are rejected.
+ */
+@RestController
+@Timed("petclinic.visit.bulk")
+class VisitBulkResource {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final Logger log = LoggerFactory.getLogger(VisitBulkResource.class);
+
+    private static final int MAX_DESCRIPTION_LENGTH = 8192;
+
+    private final ObjectMapper objectMapper;
+    private final VisitBatchRepository visitBatchRepository;
+    private final VisitRepository visitRepository;
+    private final BulkIngestProperties properties;
+
+    VisitBulkResource(ObjectMapper objectMapper, VisitBatchRepository visitBatchRepository,
+                      VisitRepository visitRepository, BulkIngestProperties properties) {
+        this.objectMapper = objectMapper;
+        this.visitBatchRepository = visitBatchRepository;
+        this.visitRepository = visitRepository;
+        this.properties = properties;
+    }
+
+    @PostMapping(value = "visits/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkResult importArray(InputStream body) throws IOException {
+        Ingest ingest = new Ingest();
+        try (MappingIterator<JsonNode> nodes = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (nodes.hasNextValue()) {
+                JsonNode node = nodes.nextValue();
+                ingest.add(() -> objectMapper.treeToValue(node, Visit.class));
+            }
+        } catch (JsonProcessingException e) {
+            ingest.abort("Malformed JSON, remaining input skipped: " + e.getOriginalMessage());
+        }
+        return ingest.finish();
+    }
+
+    @PostMapping(value = "visits/bulk", consumes = APPLICATION_NDJSON_VALUE)
+    public BulkResult importNdjson(InputStream body) throws IOException {
+        Ingest ingest = new Ingest();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String json = line;
+            ingest.add(() -> objectMapper.readValue(json, Visit.class));
+        }
+        return ingest.finish();
+    }
+
+    private static String validate(Visit visit) {
+        if (visit.getPetId() < 1) {
+            return "petId must be a positive integer";
+        }
+        if (visit.getDescription() != null && visit.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            return "description must not exceed " + MAX_DESCRIPTION_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface VisitReader {
+        Visit read() throws JsonProcessingException;
+    }
+
+    /**
+     * State of one bulk request: the pending batch and the running totals.
+     */
+    private final class Ingest {
+
+        private final List<Visit> batch = new ArrayList<>(properties.batchSize());
+        private final List<Integer> batchPositions = new ArrayList<>(properties.batchSize());
+        private final List<ItemError> errors = new ArrayList<>();
+        private int position;
+        private int accepted;
+        private int rejected;
+
+        void add(VisitReader reader) {
+            int index = position++;
+            Visit visit;
+            try {
+                visit = reader.read();
+            } catch (JsonProcessingException e) {
+                reject(index, e.getOriginalMessage());
+                return;
+            }
+            String problem = validate(visit);
+            if (problem != null) {
+                reject(index, problem);
+                return;
+            }
+            visit.setId(null);
+            batch.add(visit);
+            batchPositions.add(index);
+            if (batch.size() >= properties.batchSize()) {
+                flush();
+            }
+        }
+
+        void abort(String message) {
+            reject(position, message);
+        }
+
+        BulkResult finish() {
+            flush();
+            log.info("Bulk import of {} visits: {} accepted, {} rejected", position, accepted, rejected);
+            return new BulkResult(accepted, rejected, errors);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                visitBatchRepository.insertAll(batch);
+                accepted += batch.size();
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Batch of {} visits failed, retrying one by one", batch.size(), e);
+                for (int i = 0; i < batch.size(); i++) {
+                    saveOne(batchPositions.get(i), batch.get(i));
+                }
+            }
+            batch.clear();
+            batchPositions.clear();
+        }
+
+        private void saveOne(int index, Visit visit) {
+            // the id assigned by the rolled back batch was never written
+            visit.setId(null);
+            try {
+                visitRepository.save(visit);
+                accepted++;
+            } catch (DataAccessException | TransactionException e) {
+                reject(index, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+
+        private void reject(int index, String message) {
+            rejected++;
+            if (errors.size() < properties.maxReportedErrors()) {
+                errors.add(new ItemError(index, message));
+            }
+        }
+    }
+
+    record BulkResult(
+        int accepted,
+        int rejected,
+        List<ItemError> errors
+    ) {
+    }
+
+    record ItemError(
+        int index,
+        String message
+    ) {
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.samples.petclinic.visits.model.Visit;
+
+/**
+ * Last visit returned to a client walking a visit history from the newest to the oldest,
+ * exchanged as an opaque URL-safe token. {@code date} is {@code null} for a visit without a date.
+ */
+record VisitCursor(LocalDate date, int id) {
+
+    static VisitCursor after(Visit visit) {
+        LocalDate date = visit.getDate() == null ? null : new java.sql.Date(visit.getDate().getTime()).toLocalDate();
+        return new VisitCursor(date, visit.getId());
+    }
+
+    static VisitCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 2);
+            LocalDate date = parts[0].isEmpty() ? null : LocalDate.parse(parts[0]);
+            return new VisitCursor(date, Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor " + token);
+        }
+    }
+
+    String encode() {
+        String key = (date == null ? "" : date.toString()) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
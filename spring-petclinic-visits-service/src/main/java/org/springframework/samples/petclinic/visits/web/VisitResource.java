@@ -15,16 +15,22 @@
  */
 package org.springframework.samples.petclinic.visits.web;
 
+import java.time.LocalDate;
 import java.util.List;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.visits.model.Visit;
 import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -32,6 +38,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO;
+import static org.springframework.samples.petclinic.visits.model.VisitSpecifications.NEWEST_FIRST;
+import static org.springframework.samples.petclinic.visits.model.VisitSpecifications.between;
+import static org.springframework.samples.petclinic.visits.model.VisitSpecifications.olderThan;
+import static org.springframework.samples.petclinic.visits.model.VisitSpecifications.petId;
+import static org.springframework.samples.petclinic.visits.model.VisitSpecifications.petIdIn;
 
 /**
  * @author Juergen Hoeller
@@ -45,6 +59,10 @@ import org.springframework.web.bind.annotation.RestController;
 @Timed("petclinic.visit")
 class VisitResource {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final int MAX_LIMIT = 1000;
+
     private static final Logger log = LoggerFactory.getLogger(VisitResource.class);
 
     private final VisitRepository visitRepository;
@@ -64,19 +82,114 @@ class VisitResource {
         return visitRepository.save(visit);
     }
 
+    /**
+     * Read the visits of a pet. Without parameters the whole history is returned; {@code from} and
+     * {@code to} restrict it to a range of days, and {@code limit} pages it from the newest visit
+     * backwards, the cursor of the next page being returned in the {@value #NEXT_CURSOR_HEADER} header.
+     */
     @GetMapping("owners/*/pets/{petId}/visits")
-    public List<Visit> read(@PathVariable("petId") @Min(1) int petId) {
-        return visitRepository.findByPetId(petId);
+    public ResponseEntity<List<Visit>> read(
+        @PathVariable("petId") @Min(1) int petId,
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+
+        if (from == null && to == null && limit == null && cursor == null) {
+            return ResponseEntity.ok(visitRepository.findByPetId(petId));
+        }
+        Visits page = readPage(petId(petId).and(between(from, to)), limit, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 
+    /**
+     * Read the visits of several pets, with the same range and paging parameters as for a single pet.
+     * {@code latest} instead returns at most that many of the most recent visits of each pet.
+     */
     @GetMapping("pets/visits")
-    public Visits read(@RequestParam("petId") List<Integer> petIds) {
-        final List<Visit> byPetIdIn = visitRepository.findByPetIdIn(petIds);
-        return new Visits(byPetIdIn);
+    @Transactional(readOnly = true)
+    public Visits read(
+        @RequestParam("petId") List<Integer> petIds,
+        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+        @RequestParam(value = "latest", required = false) Integer latest,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "cursor", required = false) String cursor) {
+
+        if (latest != null) {
+            if (limit != null || cursor != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "latest cannot be combined with limit or cursor");
+            }
+            return new Visits(findLatest(petIds, from, to, clamp(latest)), null);
+        }
+        if (from == null && to == null && limit == null && cursor == null) {
+            return new Visits(visitRepository.findByPetIdIn(petIds), null);
+        }
+        return readPage(petIdIn(petIds).and(between(from, to)), limit, cursor);
+    }
+
+    /**
+     * Same as {@code GET pets/visits} with the pet ids in the body, so that long id lists are not
+     * bound by URL length limits.
+     */
+    @PostMapping("pets/visits")
+    @Transactional(readOnly = true)
+    public Visits read(@RequestBody VisitsQuery query) {
+        if (query.petIds() == null || query.petIds().isEmpty()) {
+            return new Visits(List.of(), null);
+        }
+        return read(query.petIds(), query.from(), query.to(), query.latest(), null, null);
+    }
+
+    /**
+     * One query per pet, each limited to {@code perPet} rows in SQL: the {@code (pet_id, visit_date)}
+     * index hands them out newest first, so the older visits of a long history are never read.
+     */
+    private List<Visit> findLatest(List<Integer> petIds, LocalDate from, LocalDate to, int perPet) {
+        return petIds.stream()
+            .distinct()
+            .flatMap(petId -> visitRepository.findBy(petId(petId).and(between(from, to)),
+                query -> query.sortBy(NEWEST_FIRST).limit(perPet).all()).stream())
+            .toList();
+    }
+
+    private Visits readPage(Specification<Visit> filter, Integer limit, String cursor) {
+        if (cursor != null) {
+            VisitCursor position = VisitCursor.decode(cursor);
+            filter = filter.and(olderThan(position.date(), position.id()));
+        }
+        if (limit == null) {
+            return new Visits(visitRepository.findAll(filter, NEWEST_FIRST), null);
+        }
+        int size = clamp(limit);
+        // one extra row tells whether there is a next page without counting
+        List<Visit> visits = visitRepository.findBy(filter, query -> query.sortBy(NEWEST_FIRST).limit(size + 1).all());
+        if (visits.size() <= size) {
+            return new Visits(visits, null);
+        }
+        List<Visit> page = visits.subList(0, size);
+        return new Visits(page, VisitCursor.after(page.get(size - 1)).encode());
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    record VisitsQuery(
+        List<Integer> petIds,
+        LocalDate from,
+        LocalDate to,
+        Integer latest
+    ) {
     }
 
     record Visits(
-        List<Visit> items
+        List<Visit> items,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String nextCursor
     ) {
     }
 }
@@ -1,4 +1,5 @@
 DROP TABLE visits IF EXISTS;
+DROP SEQUENCE visits_seq IF EXISTS;
 
 CREATE TABLE visits (
   id          INTEGER IDENTITY PRIMARY KEY,
@@ -7,4 +8,6 @@ CREATE TABLE visits (
   description VARCHAR(8192)
 );
 
-CREATE INDEX visits_pet_id ON visits (pet_id);
+CREATE INDEX visits_pet_id_visit_date ON visits (pet_id, visit_date);
+
+CREATE SEQUENCE visits_seq START WITH 100 INCREMENT BY 50;
@@ -10,3 +10,23 @@ CREATE TABLE IF NOT EXISTS visits (
   description VARCHAR(8192),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- Also added to a visits table created before the index existed. MySQL has no CREATE INDEX IF NOT EXISTS,
+-- so the statement is only prepared when information_schema does not list the index yet
+SET @visits_index_ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'visits' AND index_name = 'visits_pet_id_visit_date') = 0,
+  'CREATE INDEX visits_pet_id_visit_date ON visits (pet_id, visit_date)',
+  'DO 0');
+PREPARE visits_index_stmt FROM @visits_index_ddl;
+EXECUTE visits_index_stmt;
+DEALLOCATE PREPARE visits_index_stmt;
+
+-- MySQL has no sequences: Hibernate emulates visits_seq with a single-row table
+CREATE TABLE IF NOT EXISTS visits_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+INSERT INTO visits_seq (next_val)
+  SELECT GREATEST(COALESCE(MAX(id), 0) + 50, 100) FROM visits
+  WHERE NOT EXISTS (SELECT * FROM visits_seq);
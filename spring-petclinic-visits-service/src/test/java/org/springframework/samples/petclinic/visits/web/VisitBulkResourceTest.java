@@ -0,0 +1,83 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitBatchRepository;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(value = VisitBulkResource.class, properties = "visits.bulk.batch-size=2")
+@ActiveProfiles("test")
+class VisitBulkResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    VisitBatchRepository visitBatchRepository;
+
+    @MockBean
+    VisitRepository visitRepository;
+
+    @Test
+    void shouldImportNdjsonInBatchesAndReportInvalidLines() throws Exception {
+        String body = """
+            {"petId": 7, "date": "2013-01-01", "description": "rabies shot"}
+            {"petId": 8, "description": "neutered"}
+            not json
+
+            {"petId": 0, "description": "no pet"}
+            {"petId": 7, "description": "spayed"}
+            """;
+
+        mvc.perform(post("/visits/bulk")
+                .contentType(VisitBulkResource.APPLICATION_NDJSON_VALUE)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(3))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[1].index").value(3))
+                .andExpect(jsonPath("$.errors[1].message").value("petId must be a positive integer"));
+
+        verify(visitBatchRepository, times(2)).insertAll(anyList());
+    }
+
+    @Test
+    void shouldRetryFailedBatchItemByItem() throws Exception {
+        willThrow(new DataIntegrityViolationException("FK violation"))
+                .given(visitBatchRepository).insertAll(anyList());
+        given(visitRepository.save(argThat((Visit visit) -> visit.getPetId() == 999)))
+                .willThrow(new DataIntegrityViolationException("no pet 999"));
+
+        mvc.perform(post("/visits/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [{"petId": 7, "description": "rabies shot"}, {"petId": 999, "description": "unknown pet"}]
+                    """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("no pet 999"));
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.samples.petclinic.visits.model.Visit;
 import org.springframework.samples.petclinic.visits.model.VisitRepository;
@@ -14,11 +15,19 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.sql.Date;
+import java.time.LocalDate;
+
 import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -77,6 +86,83 @@ class VisitResourceTest {
                 .andExpect(jsonPath("$[1].description").value("Vaccination"));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPageVisitsOfAPetWithCursor() throws Exception {
+        given(visitRepository.findBy(any(Specification.class), any()))
+                .willReturn(
+                        asList(
+                                Visit.VisitBuilder.aVisit().id(12).petId(5).date(Date.valueOf("2024-03-02")).build(),
+                                Visit.VisitBuilder.aVisit().id(11).petId(5).date(Date.valueOf("2024-03-01")).build(),
+                                Visit.VisitBuilder.aVisit().id(10).petId(5).date(Date.valueOf("2024-02-01")).build()));
+
+        mvc.perform(get("/owners/2/pets/5/visits?limit=2&from=2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(11))
+                .andExpect(header().string(VisitResource.NEXT_CURSOR_HEADER, new VisitCursor(LocalDate.of(2024, 3, 1), 11).encode()));
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() throws Exception {
+        mvc.perform(get("/owners/2/pets/5/visits?limit=2&cursor=garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldFetchLatestVisitsOfEachPetInABoundedQueryPerPet() throws Exception {
+        // the limit is applied by the database: each query only returns the latest visit of its pet
+        given(visitRepository.findBy(any(Specification.class), any()))
+                .willReturn(
+                        asList(Visit.VisitBuilder.aVisit().id(3).petId(111).date(Date.valueOf("2024-03-01")).build()),
+                        asList(Visit.VisitBuilder.aVisit().id(2).petId(222).date(Date.valueOf("2024-02-01")).build()));
+
+        mvc.perform(get("/pets/visits?petId=111,222,111&latest=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(visitRepository, times(2)).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPagePastVisitsWithoutDate() throws Exception {
+        given(visitRepository.findBy(any(Specification.class), any()))
+                .willReturn(asList(
+                        Visit.VisitBuilder.aVisit().id(10).petId(5).date(Date.valueOf("2024-02-01")).build(),
+                        Visit.VisitBuilder.aVisit().id(9).petId(5).date(null).build(),
+                        Visit.VisitBuilder.aVisit().id(8).petId(5).date(null).build()));
+
+        mvc.perform(get("/owners/2/pets/5/visits?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string(VisitResource.NEXT_CURSOR_HEADER, new VisitCursor(null, 9).encode()));
+    }
+
+    @Test
+    void shouldDecodeCursorOfVisitWithoutDate() {
+        VisitCursor cursor = VisitCursor.decode(new VisitCursor(null, 9).encode());
+
+        assertNull(cursor.date());
+        assertEquals(9, cursor.id());
+    }
+
+    @Test
+    void shouldFetchVisitsOfPetIdsPostedInTheBody() throws Exception {
+        given(visitRepository.findByPetIdIn(asList(111, 222)))
+                .willReturn(asList(Visit.VisitBuilder.aVisit().id(1).petId(111).build()));
+
+        mvc.perform(post("/pets/visits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"petIds\": [111, 222]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].petId").value(111));
+    }
+
     @Autowired
     ObjectMapper objectMapper;
 